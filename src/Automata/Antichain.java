@@ -0,0 +1,251 @@
+package Automata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Looks for a word that is accepted by the automaton positive and rejected by the automaton negative, without
+ * complementing negative. Both can be non-deterministic.<br>
+ * We explore pairs (p,S), where p is a state of positive and S is the set of states that negative can be in after
+ * reading the same word. A word is found when p is final and no state of S is. When (p,S) and (p,T) were both reached
+ * and S is a subset of T, every word that works from (p,T) also works from (p,S), so we only keep the pairs
+ * whose sets are minimal for their state p (an antichain), and we never explore the others.<br>
+ * The two automata can have different inputs: projection[e] is the letter of negative that corresponds to the
+ * letter of edge e of positive. Negative can also have inputs that positive does not have, which can take any value.
+ * These free inputs are not enumerated letter by letter: from a set S, only the values that some state of S has a
+ * transition on are followed one by one, and all the other values together lead to the empty set.
+ */
+class Antichain {
+	TransitionTable positive, negative;
+	int[] projection;
+	/**
+	 * freeStride[j] and freeSize[j] are the stride and the size of the j-th free input in the letters of negative.
+	 * When there are free inputs, projection[e] is the letter of negative with the free inputs at their first value.
+	 */
+	int[] freeStride, freeSize;
+	/**the number of values of the free inputs together*/
+	int combinations = 1;
+	/**
+	 * When there are free inputs, the edges of state q of negative are byBound[negative.rowStart[q]],...,
+	 * byBound[negative.rowStart[q+1]-1], as (letter with the free inputs at their first value << 32 | letter), sorted.
+	 */
+	long[] byBound;
+	/**the pairs we reached: pair i is (state[i],set[i]), and it was reached from pair from[i] by edge via[i] of positive*/
+	int[] state = new int[16], from = new int[16], via = new int[16];
+	/**choice[i] is the value of the free inputs, as a part of a letter of negative, on the edge that reached pair i*/
+	int[] choice = new int[16];
+	/**once rejectedWord found a word, wordChoices[k] is the value of the free inputs at its k-th letter*/
+	int[] wordChoices;
+	int[][] set = new int[16][];
+	/**subsumed[i] is true when a pair with the same state and a smaller set was reached after pair i*/
+	boolean[] subsumed = new boolean[16];
+	int size = 0;
+	/**the pairs of the antichain of every state of positive*/
+	List<List<Integer>> antichain;
+	/**used to collect the successors of a set*/
+	int[] mark;
+	int stamp = 0;
+
+	Antichain(TransitionTable positive, int[] projection, TransitionTable negative) {
+		this(positive, projection, negative, new int[0], new int[0]);
+	}
+
+	Antichain(TransitionTable positive, int[] projection, TransitionTable negative, int[] freeStride, int[] freeSize) {
+		this.positive = positive;
+		this.projection = projection;
+		this.negative = negative;
+		this.freeStride = freeStride;
+		this.freeSize = freeSize;
+		for(int size:freeSize) combinations *= size;
+		antichain = new ArrayList<List<Integer>>(positive.Q);
+		for(int p = 0; p < positive.Q; p++) antichain.add(null);
+		mark = new int[negative.Q];
+		if(freeStride.length > 0) {
+			byBound = new long[negative.numberOfEdges()];
+			for(int e = 0; e < byBound.length; e++) {
+				int y = negative.letter[e];
+				byBound[e] = ((long)(y - freeValue(y)) << 32) | y;
+			}
+			for(int q = 0; q < negative.Q; q++) {
+				Arrays.sort(byBound, negative.rowStart[q], negative.rowStart[q+1]);
+			}
+		}
+	}
+
+	/**
+	 * @return a shortest word, up to pruning, that is accepted by positive from positiveInitial and rejected by
+	 * negative from negativeInitial, as a sequence of encoded letters of positive, or null if there is none.
+	 */
+	int[] rejectedWord(int positiveInitial, int negativeInitial) {
+		add(positiveInitial, new int[]{negativeInitial}, -1, -1, 0);
+		for(int i = 0; i < size; i++) {
+			if(subsumed[i]) continue;
+			int p = state[i];
+			if(positive.O[p] != 0 && rejects(set[i])) return word(i);
+			for(int e = positive.rowStart[p]; e < positive.rowStart[p+1]; e++) {
+				if(positive.targetStart[e] == positive.targetStart[e+1]) continue;
+				if(freeStride.length == 0) follow(i, e, successors(set[i], projection[e]), 0);
+				else followFree(i, e);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds the pairs that edge e of positive leads to from pair i, when negative goes to the set successors,
+	 * reading the value free of the free inputs.
+	 */
+	private void follow(int i, int e, int[] successors, int free) {
+		for(int t = positive.targetStart[e]; t < positive.targetStart[e+1]; t++) {
+			add(positive.targets[t], successors, i, e, free);
+		}
+	}
+
+	/**
+	 * Follows edge e of positive from pair i for all the values of the free inputs: the letters of negative that
+	 * states of set[i] have transitions on one by one, and, if some value is left, the empty set for it.
+	 */
+	private void followFree(int i, int e) {
+		int bound = projection[e];
+		int[] letters = new int[4];
+		int count = 0;
+		for(int q:set[i]) {
+			int lo = negative.rowStart[q], hi = negative.rowStart[q+1];
+			while(lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if((int)(byBound[mid] >>> 32) < bound) lo = mid + 1;
+				else hi = mid;
+			}
+			for(int k = lo; k < negative.rowStart[q+1] && (int)(byBound[k] >>> 32) == bound; k++) {
+				if(count == letters.length) letters = Arrays.copyOf(letters, 2 * count);
+				letters[count++] = (int)byBound[k];
+			}
+		}
+		Arrays.sort(letters, 0, count);
+		int distinct = 0;
+		for(int k = 0; k < count; k++) {
+			if(distinct == 0 || letters[k] != letters[distinct-1]) letters[distinct++] = letters[k];
+		}
+		for(int k = 0; k < distinct; k++) {
+			follow(i, e, successors(set[i], letters[k]), letters[k] - bound);
+		}
+		if(distinct == combinations) return;
+		/**at most distinct values are taken, so one of the first distinct+1 is not*/
+		for(int c = 0; ; c++) {
+			int free = 0;
+			for(int j = 0, n = c; j < freeStride.length; n /= freeSize[j++]) free += (n % freeSize[j]) * freeStride[j];
+			if(Arrays.binarySearch(letters, 0, distinct, bound + free) < 0) {
+				follow(i, e, new int[0], free);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return the part of the letter y of negative that comes from the free inputs.
+	 */
+	private int freeValue(int y) {
+		int free = 0;
+		for(int j = 0; j < freeStride.length; j++) free += ((y / freeStride[j]) % freeSize[j]) * freeStride[j];
+		return free;
+	}
+
+	private boolean rejects(int[] S) {
+		for(int q:S) {
+			if(negative.O[q] != 0) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the sorted set of the states that negative reaches from S on the letter y.
+	 */
+	private int[] successors(int[] S, int y) {
+		stamp++;
+		int count = 0;
+		int[] result = new int[4];
+		for(int q:S) {
+			int lo = negative.rowStart[q], hi = negative.rowStart[q+1] - 1;
+			while(lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				if(negative.letter[mid] < y) lo = mid + 1;
+				else if(negative.letter[mid] > y) hi = mid - 1;
+				else {
+					for(int t = negative.targetStart[mid]; t < negative.targetStart[mid+1]; t++) {
+						int r = negative.targets[t];
+						if(mark[r] == stamp) continue;
+						mark[r] = stamp;
+						if(count == result.length) result = Arrays.copyOf(result, 2 * count);
+						result[count++] = r;
+					}
+					break;
+				}
+			}
+		}
+		result = Arrays.copyOf(result, count);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * @return true if the sorted set S is a subset of the sorted set T.
+	 */
+	private static boolean isSubset(int[] S, int[] T) {
+		if(S.length > T.length) return false;
+		int j = 0;
+		for(int s:S) {
+			while(j < T.length && T[j] < s) j++;
+			if(j == T.length || T[j] != s) return false;
+			j++;
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the pair (p,S) unless the antichain of p has a subset of S, and removes the supersets of S from it.
+	 */
+	private void add(int p, int[] S, int previous, int e, int free) {
+		List<Integer> pairs = antichain.get(p);
+		if(pairs == null) {
+			pairs = new ArrayList<Integer>();
+			antichain.set(p, pairs);
+		}
+		for(int i:pairs) {
+			if(isSubset(set[i], S)) return;
+		}
+		for(int k = pairs.size() - 1; k >= 0; k--) {
+			int i = pairs.get(k);
+			if(isSubset(S, set[i])) {
+				subsumed[i] = true;
+				pairs.remove(k);
+			}
+		}
+		if(size == state.length) {
+			state = Arrays.copyOf(state, 2 * size);
+			from = Arrays.copyOf(from, 2 * size);
+			via = Arrays.copyOf(via, 2 * size);
+			set = Arrays.copyOf(set, 2 * size);
+			subsumed = Arrays.copyOf(subsumed, 2 * size);
+			choice = Arrays.copyOf(choice, 2 * size);
+		}
+		state[size] = p;
+		choice[size] = free;
+		set[size] = S;
+		from[size] = previous;
+		via[size] = e;
+		pairs.add(size++);
+	}
+
+	private int[] word(int pair) {
+		int length = 0;
+		for(int i = pair; from[i] != -1; i = from[i]) length++;
+		int[] result = new int[length];
+		wordChoices = new int[length];
+		for(int i = pair; from[i] != -1; i = from[i]) {
+			result[--length] = positive.letter[via[i]];
+			wordChoices[length] = choice[i];
+		}
+		return result;
+	}
+}
@@ -30,16 +30,15 @@ import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import dk.brics.automaton.RegExp;
 import dk.brics.automaton.State;
@@ -162,6 +161,24 @@ public class Automaton {
     /** When true, labels are sorted lexicographically. It is used in sortLabel() method.*/
     public boolean labelSorted;
 
+    /** When true, the transition function is deterministic. When false, it may or may not be.
+     *  It is set by minimize, kept by the methods that preserve it, and reset by the ones that may break it.
+     *  Code outside this class that changes d should reset it.
+     *  With assertions enabled (java -ea), we check it whenever we rely on it, see flagsAreConsistent().
+     * */
+    public boolean deterministic;
+
+    /** When true, this automaton is the minimal deterministic automaton of its language,
+     *  i.e., it is what minimize would return, up to the numbering of states. So minimize has nothing to do.
+     *  It is maintained like deterministic.
+     * */
+    public boolean minimal;
+
+    /** When true, d may also be the transition function of other automata: this automaton is one that NumberSystem
+     *  caches, which are marked shared when they are published, or a view of one. See d.
+     * */
+    boolean shared;
+
     /**
      * Transition Function for This State. For example, when d[0] = [(0,[1]),(1,[2,3]),(2,[2]),(3,[4]),(4,[1]),(5,[0])]
      * and alphabet A = [[0,1],[-1,2,3]]
@@ -175,39 +192,108 @@ public class Automaton {
      * to state 1.
      * Recall that (0,-1) represents 0 in mixed-radix base (1,2) and alphabet A. We have this mixed-radix base (1,2) stored as encoder in
      * our program, so for more information on how we compute it read the information on List<Integer> encoder field.
+     * <br>
+     * d must never be changed in place while shared is true, since other automata, possibly in other threads, read it.
+     * Methods of this class either replace d by a new list, or call unshare() before changing it, as totalize and
+     * fixLeadingZerosProblem do. Code outside this class only changes d of automata it builds itself.
      */
     public List<TreeMap<Integer,List<Integer>>> d;
 
+    // for use in the combine command, counts how many products we have taken so far, and hence what to set outputs to
+    public int combineIndex;
+
+    // for use in the combine command, allows crossProduct to determine what to set outputs to
+    public List<Integer> combineOutputs;
+
+    // when true, cross products expand each level of their breadth-first search in parallel. See setParallelProduct.
+    private static volatile boolean parallelProduct = false;
+
+    /**
+     * Selects how crossProduct explores the product states. The parallel mode uses the common fork/join pool,
+     * and produces exactly the same automata as the sequential mode.
+     */
+    public static void setParallelProduct(boolean parallel) {
+        parallelProduct = parallel;
+    }
+
+    public static boolean isParallelProduct() {
+        return parallelProduct;
+    }
+
+    // when true, subset constructions expand each level of their breadth-first search in parallel. See setParallelDeterminization.
+    private static volatile boolean parallelDeterminization = false;
+
     /**
-     * Valmari fields
+     * Selects how subsetConstruction explores the sets of states. The parallel mode uses the common fork/join pool,
+     * and produces exactly the same automata as the sequential mode.
      */
-    // blocks (consist of states)
-    Partition B;
-    // cords (consist of transitions)
-    Partition C;
+    public static void setParallelDeterminization(boolean parallel) {
+        parallelDeterminization = parallel;
+    }
 
-    // number of states
-    public int num_states;
-    // number of transitions
-    public int num_transitions;
-    // number of final states
-    public int num_finalstates;
+    public static boolean isParallelDeterminization() {
+        return parallelDeterminization;
+    }
 
-    // tails of transitions
-    Integer[] T;
-    // labels of transitions
-    Integer[] L;
-    // heads of transitions
-    Integer[] H;
+    // how non-deterministic automata are reduced before the subset construction. See setReduction.
+    private static volatile String reduction = "none";
 
-    /* Adjacent transitions */
-    int[] _A, _F;
+    // the number of states removed by reductions, and the time they took, since the start of the session.
+    private static final AtomicLong reducedStates = new AtomicLong(), reductionTime = new AtomicLong();
 
-    // for use in the combine command, counts how many products we have taken so far, and hence what to set outputs to
-    public int combineIndex;
+    // the time taken by the subset constructions that may be preceded by a reduction, since the start of the session.
+    private static final AtomicLong reducibleDeterminizationTime = new AtomicLong();
 
-    // for use in the combine command, allows crossProduct to determine what to set outputs to
-    public List<Integer> combineOutputs;
+    /**
+     * Selects how the automata that quantification produces are reduced before they are determinized:
+     * none, bisimulation, or simulation (which also merges bisimilar states first). See Reduction.
+     */
+    public static void setReduction(String name) throws Exception {
+        if(!name.equals("none") && !name.equals("bisimulation") && !name.equals("simulation"))
+            throw new Exception("The reduction can be set to none, bisimulation or simulation.");
+        reduction = name;
+    }
+
+    public static String getReduction() {
+        return reduction;
+    }
+
+    public static long getReducedStates() {
+        return reducedStates.get();
+    }
+
+    public static long getReductionTime() {
+        return reductionTime.get();
+    }
+
+    /**
+     * @return the time taken by the subset constructions of quantification, fixLeadingZerosProblem and deferred
+     * determinization, i.e., the ones that setReduction applies to, whether or not a reduction was done. Comparing it
+     * across reductions gives the time that a reduction saves in the subset construction.
+     */
+    public static long getReducibleDeterminizationTime() {
+        return reducibleDeterminizationTime.get();
+    }
+
+    // when true, &, | and quantify may leave their results non-deterministic. See setLazyDeterminization.
+    private static volatile boolean lazyDeterminization = true;
+
+    /** the cost model of lazy determinization: see keepNondeterministic */
+    static final int LAZY_STATE_LIMIT = 256;
+    static final int LAZY_BRANCHING_LIMIT = 2;
+
+    /**
+     * Selects whether non-deterministic results of &, | and quantify are determinized right away, or kept
+     * until an operation needs a deterministic automaton: complementation, A, the operators that go through
+     * a complement (^, =>, <=>), comparisons of words, and the final result of an evaluation (see determinize).
+     */
+    public static void setLazyDeterminization(boolean lazy) {
+        lazyDeterminization = lazy;
+    }
+
+    public static boolean isLazyDeterminization() {
+        return lazyDeterminization;
+    }
 
     // for use in inf command, keeps track of which states we have visited
     public HashSet<Integer> visited;
@@ -225,165 +311,77 @@ public class Automaton {
     // we find that many
     public Integer maxNeeded;
 
-    void make_adjacent(Integer K[]) {
-        int q, t;
-        for( q = 0; q <= num_states; ++q ) {
-            _F[q] = 0;
-        }
+    // the algorithm used to minimize deterministic automata. See setMinimizationEngine.
+    private static volatile String minimizationEngine = "valmari";
 
-        for( t = 0; t < num_transitions; ++t ) {
-            ++_F[K[t]];
-        }
-
-        for( q = 0; q < num_states; ++q ) {
-            _F[q+1] += _F[q];
-        }
+    // in auto mode, we use Hopcroft's algorithm on automata with at most this many transitions, and Valmari's otherwise.
+    static final int HOPCROFT_LIMIT = 64;
 
-        for( t = num_transitions; t-- != 0; ) {
-            _A[--_F[K[t]]] = t;
-        }
+    /**
+     * Selects the algorithm used by minimize: valmari, hopcroft or brzozowski. With auto, the algorithm is chosen
+     * by the number of transitions of the automaton, see HOPCROFT_LIMIT. All of them produce the same automata.
+     */
+    public static void setMinimizationEngine(String name) throws Exception {
+        if(!name.equals("valmari") && !name.equals("hopcroft") && !name.equals("brzozowski") && !name.equals("auto"))
+            throw new Exception("The minimization can be set to valmari, hopcroft, brzozowski or auto.");
+        minimizationEngine = name;
     }
 
-    /* Removal of irrelevant parts */
-    int rr = 0;   // number of reached states
-
-    void reach( int q ) {
-      int i = B.L[q];
-      if( i >= rr ){
-        B.E[i] = B.E[rr]; B.L[B.E[i]] = i;
-        B.E[rr] = q; B.L[q] = rr++; }
+    public static String getMinimizationEngine() {
+        return minimizationEngine;
     }
 
-    void rem_unreachable( Integer T[], Integer H[] ){
-        make_adjacent( T ); int i, j;
-        for( i = 0; i < rr; ++i ){
-            for( j = _F[B.E[i]]; j < _F[B.E[i] + 1]; ++j ){
-                reach( H[_A[j]] );
-            }
-        }
-        j = 0;
-        for( int t = 0; t < num_transitions; ++t ){
-            if( B.L[T[t]] < rr ){
-                H[j] = H[t]; L[j] = L[t];
-                T[j] = T[t]; ++j;
-            }
+    // every thread reuses the buffers of its own minimizers, so minimizations can run in parallel.
+    private static final ThreadLocal<ValmariMinimizer> valmariMinimizers = ThreadLocal.withInitial(ValmariMinimizer::new);
+    private static final ThreadLocal<HopcroftMinimizer> hopcroftMinimizers = ThreadLocal.withInitial(HopcroftMinimizer::new);
+    private static final ThreadLocal<BrzozowskiMinimizer> brzozowskiMinimizers = ThreadLocal.withInitial(BrzozowskiMinimizer::new);
+
+    /**
+     * @return the engine of the current thread that should minimize dfa.
+     */
+    private static MinimizationEngine minimizationEngine(TransitionTable dfa) {
+        switch(minimizationEngine) {
+            case "hopcroft":
+                return hopcroftMinimizers.get();
+            case "brzozowski":
+                return brzozowskiMinimizers.get();
+            case "auto":
+                if(dfa.numberOfTransitions() <= HOPCROFT_LIMIT) return hopcroftMinimizers.get();
+                return valmariMinimizers.get();
+            default:
+                return valmariMinimizers.get();
         }
-        num_transitions = j; B.P[0] = rr; rr = 0;
     }
 
     /* Minimization algorithm */
-    void minimize_valmari(boolean print, String prefix,StringBuffer log) throws Exception{
-        HashSet<Integer> qqq = new HashSet<Integer>();
-        qqq.add(q0);
-        subsetConstruction(qqq,print,prefix,log);
-        num_states = Q;
-        num_transitions = 0;
-        B = new Partition();
-        C = new Partition();
-        ArrayList<Integer> _H = new ArrayList<Integer>(),_L = new ArrayList<Integer>(),_T= new ArrayList<Integer>();
-        //System.out.println("-------------------------------------------");
-        for(int q = 0; q != d.size();++q){
-            for(int l : d.get(q).keySet()) {
-                for(int p : d.get(q).get(l)) {
-                    num_transitions++;
-                    _H.add(p);
-                    _T.add(q);
-                    _L.add(l);
-                    //System.out.println(q + " -> " + p + " - " + l);
-                }
-            }
-        }
-        //System.out.println("-------------------------------------------");
-        T = new Integer[num_transitions];
-        L = new Integer[num_transitions];
-        H = new Integer[num_transitions];
-        _T.toArray(T); _L.toArray(L);_H.toArray(H);
-        B.init( num_states );
-        _A = new int[ num_transitions ]; _F = new int[ num_states+1 ];
-
-          //reach( q0 ); rem_unreachable( T, H );
-        for( int q = 0; q < num_states; ++q ){
-            if(O.get(q) != 0){
-                reach( q );
-            }
-        }
-        num_finalstates = rr; rem_unreachable( H, T );
-
-        /* Make initial partition */
-        Partition.W = new int[ num_transitions+1 ]; Partition.M = new int[ num_transitions+1];
-        Partition.M[0] = num_finalstates;
-        if( num_finalstates != 0 ){ Partition.W[Partition.w++] = 0; B.split(); }
-
-        /* Make transition partition */
-        C.init( num_transitions );
-        if( num_transitions != 0 ){
-            Arrays.sort(C.E, new Comparator<Integer>() {
-                @Override
-                public int compare(Integer a, Integer b)
-                {
-
-                    return L[a] - L[b];
-                }
-            });
-            C.z = Partition.M[0] = 0; int a = L[C.E[0]];
-            for( int i = 0; i < num_transitions; ++i ){
-                int t = C.E[i];
-                if( L[t] != a ){
-                    a = L[t]; C.P[C.z++] = i;
-                    C.F[C.z] = i; Partition.M[C.z] = 0;
-                }
-                C.S[t] = C.z; C.L[t] = i;
-            }
-            C.P[C.z++] = num_transitions;
-        }
-
-        /* Split blocks and cords */
-        make_adjacent( H );
-        int b = 1, c = 0;
-        while( c < C.z ){
-            for(int i = C.F[c]; i < C.P[c]; ++i ){
-                B.mark( T[C.E[i]] );
-            }
-            B.split(); ++c;
-            while( b < B.z ){
-                for(int i = B.F[b]; i < B.P[b]; ++i ){
-                    for(int j = _F[B.E[i]];j < _F[B.E[i]+1]; ++j){
-                        C.mark( _A[j] );
-                    }
-                }
-                C.split(); ++b;
-            }
-        }
-
-        /* Turn the result back to Walnut format for Automata */
-        Q = B.z;
-        q0 = B.S[q0];
-        O = new ArrayList<Integer>(Q);
-        for( int q = 0; q < B.z; ++q ){
-            if( B.F[q] < num_finalstates ){
-                O.add(1);
-            }
-            else {
-                O.add(0);
-            }
-        }
-
-        d = new ArrayList<TreeMap<Integer,List<Integer>>>(Q);
-        for( int q = 0; q < Q;++q){
-            d.add(new TreeMap<Integer,List<Integer>>());
-        }
-        for( int t = 0; t < num_transitions; ++t ){
-            if( B.L[T[t]] == B.F[B.S[T[t]]] ){
-                int q = B.S[T[t]];
-                int l = L[t];
-                int p = B.S[H[t]];
-                if(!d.get(q).containsKey(l)){
-                    d.get(q).put(l, new ArrayList<Integer>());
-                }
-                d.get(q).get(l).add(p);
-            }
+    void minimize_with_engine(TransitionTable table, int initial_state, boolean print, String prefix,StringBuffer log) throws Exception{
+        TransitionTable dfa;
+        if(table.deterministic && table.allReachableFrom(initial_state)){
+            // e.g. the cross product of two deterministic automata: there is nothing to determinize
+            dfa = table;
+            Q = dfa.Q;
+            q0 = initial_state;
+        }
+        else if(table.deterministic){
+            // the subset construction would only keep the reachable states
+            dfa = table.reachablePart(initial_state);
+            Q = dfa.Q;
+            q0 = 0;
         }
+        else{
+            HashSet<Integer> qqq = new HashSet<Integer>();
+            qqq.add(initial_state);
+            dfa = subsetConstruction(table,qqq,true,print,prefix,log);
+        }
+        MinimizationEngine engine = minimizationEngine(dfa);
+        TransitionTable result = engine.minimize(dfa, q0);
+        Q = result.Q;
+        q0 = engine.initialState();
+        O = result.toOutputs();
+        d = result.toTransitionFunction();
         canonized = false;
+        deterministic = true;
+        minimal = true;
     }
 
     /**
@@ -686,6 +684,8 @@ public class Automaton {
         M.alphabetSize = alphabetSize;
         M.canonized = canonized;
         M.labelSorted = labelSorted;
+        M.deterministic = deterministic;
+        M.minimal = minimal;
         for(int i = 0 ; i < A.size();i++){
             M.A.add(new ArrayList<Integer>(A.get(i)));
             M.NS.add(NS.get(i));
@@ -706,6 +706,51 @@ public class Automaton {
         return M;
     }
 
+    /**
+     * returns a view of this automaton: a copy that shares the transition function with this automaton, which is
+     * the large part of it. So it is much cheaper than clone(). The view can be changed like any automaton, see d.
+     * This automaton must be shared, i.e., cached, and is only read, so that many threads can take views of it.
+     * @return a view of this automaton
+     */
+    public Automaton view(){
+        if(TRUE_FALSE_AUTOMATON){
+            return new Automaton(TRUE_AUTOMATON);
+        }
+        Automaton M = new Automaton();
+        M.Q = Q;
+        M.q0 = q0;
+        M.alphabetSize = alphabetSize;
+        M.canonized = canonized;
+        M.labelSorted = labelSorted;
+        M.deterministic = deterministic;
+        M.minimal = minimal;
+        M.A = new ArrayList<List<Integer>>(A);
+        M.NS = new ArrayList<NumberSystem>(NS);
+        if(encoder != null) M.encoder = new ArrayList<Integer>(encoder);
+        if(label != null) M.label = new ArrayList<String>(label);
+        M.O = new ArrayList<Integer>(O);
+        assert shared : "views are only taken of cached automata";
+        M.d = d;
+        M.shared = true;
+        return M;
+    }
+
+    /**
+     * Makes d a copy that belongs to this automaton only, if it is shared.
+     */
+    private void unshare(){
+        if(!shared) return;
+        List<TreeMap<Integer,List<Integer>>> new_d = new ArrayList<TreeMap<Integer,List<Integer>>>(d.size());
+        for(TreeMap<Integer,List<Integer>> transitions:d){
+            TreeMap<Integer,List<Integer>> copy = new TreeMap<Integer,List<Integer>>();
+            for(int x:transitions.keySet())
+                copy.put(x, new ArrayList<Integer>(transitions.get(x)));
+            new_d.add(copy);
+        }
+        d = new_d;
+        shared = false;
+    }
+
     public void quantify(String labelToQuantify,boolean print, String prefix,StringBuffer log)throws Exception{
         Set<String> listOfLabelsToQuantify = new HashSet<String>();
         listOfLabelsToQuantify.add(labelToQuantify);
@@ -733,38 +778,148 @@ public class Automaton {
      * @return
      */
     public void quantify(Set<String> listOfLabelsToQuantify, boolean print, String prefix,StringBuffer log)throws Exception{
-        quantifyHelper(listOfLabelsToQuantify,print,prefix,log);
+        if(quantifyHelper(listOfLabelsToQuantify,false,print,prefix,log))return;
         if(TRUE_FALSE_AUTOMATON)return;
 
+        Boolean isMsd = isMsd();
+        if(isMsd == null)
+            return;
+        if(isMsd)
+            fixLeadingZerosProblem(print,prefix,log);
+        else
+            fixTrailingZerosProblem(print,prefix,log);
+    }
+
+    /**
+     * This method computes the universal quantification of this automaton, i.e., the same automaton as
+     * not, quantify and not, without the two complements. The inputs with labels in listOfLabelsToQuantify
+     * are eliminated: the result accepts an input iff this automaton accepts it together with every valid value of
+     * the eliminated inputs, and, as in quantify, every way of padding it with leading or trailing zeros.<br>
+     * We complement this automaton (without minimizing it) and intersect it with the valid representations in one
+     * simultaneous product, and then determinize its projection. The complement of the result of the subset
+     * construction is the universal projection: a set of states accepts iff all of its members accept in this automaton.
+     * It is minimized once, and intersected with the valid representations of the remaining inputs.
+     * @param listOfLabelsToQuantify must contain at least one element. listOfLabelsToQuantify must be a subset of this.label.
+     * @throws Exception
+     */
+    public void quantifyUniversal(Set<String> listOfLabelsToQuantify, boolean print, String prefix, StringBuffer log) throws Exception{
+        List<Integer> remaining = new ArrayList<Integer>();
+        if(!TRUE_FALSE_AUTOMATON && label != null && label.size() == A.size()){
+            for(int i = 0; i < A.size(); i++)
+                if(!listOfLabelsToQuantify.contains(label.get(i))) remaining.add(i);
+        }
+        /**
+         * When the remaining inputs all use msd (or all use lsd) number systems, the leading (or trailing) zeros problem
+         * is addressed in quantifyHelper, which needs 0 in all of their alphabets. Otherwise, we use not and quantify.
+         */
+        boolean zerosProblem = false, sameDirection = !remaining.isEmpty();
+        for(int i:remaining){
+            NumberSystem first = NS.get(remaining.get(0));
+            if(first == null || NS.get(i) == null || NS.get(i).isMsd() != first.isMsd()) sameDirection = false;
+            if(!A.get(i).contains(0)) zerosProblem = true;
+        }
+        if(TRUE_FALSE_AUTOMATON || listOfLabelsToQuantify.isEmpty() || label == null || label.size() != A.size() ||
+            (sameDirection && zerosProblem)){
+            not(print,prefix,log);
+            quantify(listOfLabelsToQuantify,print,prefix,log);
+            not(print,prefix,log);
+            return;
+        }
+        for(String s:listOfLabelsToQuantify) {
+            if(!label.contains(s)) {
+                throw new Exception(
+                    "Variable " + s + " in the list of quantified variables is not a free variable.");
+            }
+        }
+        long timeBefore = System.currentTimeMillis();
+        if(print){
+            String msg = prefix + "quantifying universally:" + Q + " states";
+            log.append(msg + UtilityMethods.newLine());
+            System.out.println(msg);
+        }
+
+        if(remaining.isEmpty()){
+            // a sentence: no valid input is rejected
+            TRUE_AUTOMATON = rejectedWord(new ArrayList<Automaton>(), Collections.singletonList(this), new ArrayList<String>()) == null;
+            TRUE_FALSE_AUTOMATON = true;
+            clear();
+        }
+        else{
+            determinize(print,prefix+" ",log);
+            totalize(print,prefix+" ",log);
+            for(int q = 0 ; q < Q;q++)
+                O.set(q, O.get(q) != 0 ? 0 : 1 );
+            minimal = false;
+            List<Automaton> automata = new ArrayList<Automaton>();
+            automata.add(this);
+            for(int i = 0; i < A.size(); i++){
+                if(NS.get(i) != null && NS.get(i).getAllRepresentations() != null && NS.get(i).should_we_use_allRepresentations()){
+                    Automaton R = NS.get(i).getAllRepresentations();
+                    R.bind(label.get(i));
+                    automata.add(R);
+                }
+            }
+            if(automata.size() > 1){
+                int[] initial = new int[automata.size()];
+                for(int i = 0; i < initial.length; i++) initial[i] = automata.get(i).q0;
+                TransitionTable table = new MultiProduct(automata, new Automaton(), "&").explore(initial);
+                Q = table.Q;
+                q0 = 0;
+                O = table.toOutputs();
+                d = table.toTransitionFunction();
+                deterministic = table.deterministic;
+                canonized = false;
+            }
+            quantifyHelper(listOfLabelsToQuantify,true,print,prefix+" ",log);
+            applyAllRepresentations();
+        }
+
+        long timeAfter = System.currentTimeMillis();
+        if(print){
+            String msg = prefix + "quantified universally:" + Q + " states - "+(timeAfter-timeBefore)+"ms";
+            log.append(msg + UtilityMethods.newLine());
+            System.out.println(msg);
+        }
+    }
+
+    /**
+     * @return true if all inputs are of type arithmetic and their number systems are msd, false if they are all lsd,
+     * and null otherwise. This decides which of leading or trailing zeros should be addressed after quantification.
+     */
+    private Boolean isMsd(){
         boolean isMsd = true;
         boolean flag = false;
         for(NumberSystem ns:NS){
             if(ns == null)
-                return;
+                return null;
             if(flag && (ns.isMsd() != isMsd) )
-                return;
+                return null;
             isMsd = ns.isMsd();
             flag = true;
         }
-        if(isMsd)
-            fixLeadingZerosProblem(print,prefix,log);
-        else
-            fixTrailingZerosProblem(print,prefix,log);
+        return isMsd;
     }
 
     /**
      * This method is very similar to public void quantify(Set<String> listOfLabelsToQuantify,boolean leadingZeros)throws Exception
-     * with the exception that, this method does not deal with leading/trailing zeros problem.
+     * with the exception that, this method only deals with leading/trailing zeros problem when it can do so while
+     * determinizing the projection, see below.
      * @param listOfLabelsToQuantify
+     * @param universal when true, this automaton is the complement of the automaton we quantify universally
+     * (see quantifyUniversal), and the result is the complement of the determinized projection: a set of states
+     * accepts iff none of its members does. The leading/trailing zeros problem is then always addressed, since
+     * quantifyUniversal only calls it when the projected zero exists.
+     * @return true if the leading/trailing zeros problem has been addressed.
      * @throws Exception
      */
-    private void quantifyHelper(
+    private boolean quantifyHelper(
         Set<String> listOfLabelsToQuantify,
+        boolean universal,
         boolean print,
         String prefix,
         StringBuffer log) throws Exception {
         if(listOfLabelsToQuantify.isEmpty() || label == null) {
-            return;
+            return false;
         }
 
         // throw new Exception("quantification requires a non empty list of qunatified variables");
@@ -799,16 +954,58 @@ public class Automaton {
                 TRUE_AUTOMATON = true;
             TRUE_FALSE_AUTOMATON = true;
             clear();
-            return;
+            return true;
         }
 
         List<Integer> listOfInputsToQuantify = new ArrayList<Integer>();//extract the list of indices of inputs we would like to quantify
         for(String l:listOfLabelsToQuantify)
             listOfInputsToQuantify.add(label.indexOf(l));
-        List<List<Integer>> allInputs = new ArrayList<List<Integer>>();
-        for(int i = 0; i < alphabetSize;i++)
-            allInputs.add(decode(i));
-        //now we remove those indices in listOfInputsToQuantify from A,T,label, and allInputs
+        /**
+         * We project the letters that are actually used by transitions, instead of decoding the whole alphabet.
+         * The i-th digit of the encoded letter x is (x / stride[i]) % A.get(i).size(), and
+         * newStride[i] is the stride of input i after the quantified inputs are removed (0 for the quantified inputs).
+         */
+        int[] stride = new int[A.size()], newStride = new int[A.size()];
+        for(int i = 0, oldSize = 1, newSize = 1; i < A.size();i++){
+            stride[i] = oldSize;
+            oldSize *= A.get(i).size();
+            if(!listOfInputsToQuantify.contains(i)){
+                newStride[i] = newSize;
+                newSize *= A.get(i).size();
+            }
+        }
+        int[] radix = new int[A.size()];
+        for(int i = 0; i < A.size();i++)
+            radix[i] = A.get(i).size();
+        TransitionTable table = new TransitionTable(Q, d, O, alphabetSize);
+        /**
+         * The all-zero letter, before and after the quantified inputs are removed, or -1 when some input does not have 0.
+         * When q0 has a self-loop on zero (so that prepending zeros to an accepted input gives an accepted input,
+         * which is the case for the automata we build for msd number systems), the projection of that self-loop is a
+         * self-loop on the projected zero, so adding zeros to the front of the projected inputs can be done on the
+         * projection itself: we start the subset construction from the states that are reachable from q0 by zeros.
+         * This gives the same automaton as minimizing the projection first and then calling fixLeadingZerosProblem,
+         * without the second determinization and minimization.
+         */
+        int zero = 0, projectedZero = 0;
+        for(int i = 0; i < A.size();i++){
+            int index = A.get(i).indexOf(0);
+            if(index == -1){
+                zero = projectedZero = -1;
+                break;
+            }
+            zero += index * stride[i];
+            projectedZero += index * newStride[i];
+        }
+        boolean zeroLoopAtInitialState = false;
+        if(zero != -1){
+            for(int e = table.rowStart[q0]; e < table.rowStart[q0+1]; e++){
+                if(table.letter[e] != zero) continue;
+                for(int i = table.targetStart[e]; i < table.targetStart[e+1]; i++)
+                    if(table.targets[i] == q0) zeroLoopAtInitialState = true;
+            }
+        }
+        //now we remove those indices in listOfInputsToQuantify from A,T,label
         UtilityMethods.removeIndices(A,listOfInputsToQuantify);
         encoder = null;
         alphabetSize = 1;
@@ -816,32 +1013,123 @@ public class Automaton {
             alphabetSize*=x.size();
         UtilityMethods.removeIndices(NS,listOfInputsToQuantify);
         UtilityMethods.removeIndices(label,listOfInputsToQuantify);
-        for(List<Integer> i:allInputs)
-            UtilityMethods.removeIndices(i,listOfInputsToQuantify);
-        //example: permutation[1] = 7 means that encoded old input 1 becomes encoded new input 7
-        List<Integer> permutation = new ArrayList<Integer>();
-        for(List<Integer> i:allInputs)
-            permutation.add(encode(i));
-        List<TreeMap<Integer,List<Integer>>> new_d = new ArrayList<TreeMap<Integer,List<Integer>>>();
+        Boolean isMsd = isMsd();
+        boolean leadingZeros = isMsd != null && isMsd && (zeroLoopAtInitialState || (universal && projectedZero != -1));
+        boolean trailingZeros = isMsd != null && !isMsd && projectedZero != -1;
+
+        TransitionTable.Builder builder = new TransitionTable.Builder(alphabetSize);
+        /**permutation caches the projection of letters we have already seen*/
+        HashMap<Integer,Integer> permutation = new HashMap<Integer,Integer>();
+        /**transitions[i] holds (projected letter << 32 | destination) for the transitions of the current state*/
+        long[] transitions = new long[16];
         for(int q = 0; q < Q;q++){
-            TreeMap<Integer,List<Integer>> newTransitionFunction = new TreeMap<Integer,List<Integer>>();
-            new_d.add(newTransitionFunction);
-            for(int x:d.get(q).keySet()){
-                int y = permutation.get(x);
-                if(newTransitionFunction.containsKey(y))
-                    UtilityMethods.addAllWithoutRepetition(newTransitionFunction.get(y),d.get(q).get(x));
-                else
-                    newTransitionFunction.put(y,new ArrayList<Integer>(d.get(q).get(x)));
+            int n = 0;
+            for(int e = table.rowStart[q]; e < table.rowStart[q+1]; e++){
+                int x = table.letter[e];
+                Integer y = permutation.get(x);
+                if(y == null){
+                    y = 0;
+                    for(int i = 0; i < stride.length;i++)
+                        y += ((x / stride[i]) % radix[i]) * newStride[i];
+                    permutation.put(x, y);
+                }
+                for(int i = table.targetStart[e]; i < table.targetStart[e+1]; i++){
+                    if(n == transitions.length) transitions = Arrays.copyOf(transitions, 2*n);
+                    transitions[n++] = ((long)y << 32) | table.targets[i];
+                }
+            }
+            Arrays.sort(transitions, 0, n);
+            builder.beginState(table.O[q]);
+            for(int i = 0; i < n;i++){
+                if(i > 0 && transitions[i] == transitions[i-1]) continue;
+                int y = (int)(transitions[i] >>> 32);
+                if(i == 0 || y != (int)(transitions[i-1] >>> 32))
+                    builder.addEdge(y);
+                builder.addTarget((int)transitions[i]);
+            }
+        }
+        TransitionTable projection = builder.build();
+        if(leadingZeros){
+            canonized = false;
+            int[] initial = new int[Q];
+            initial[q0] = 1;
+            boolean[] zeroReachable = zeroPaths(projection, projectedZero, initial, false);
+            if(!universal && keepNondeterministic(projection)){
+                minimizeOrKeep(projection.withInitialSet(zeroReachable), Q, print, prefix+" ", log);
+            }
+            else{
+                HashSet<Integer> initial_state = new HashSet<Integer>();
+                for(int q = 0; q < Q; q++)
+                    if(zeroReachable[q]) initial_state.add(q);
+                TransitionTable dfa = subsetConstruction(projection,initial_state,true,print,prefix+" ",log);
+                if(universal) dfa = dfa.complement();
+                minimize(dfa, q0, print, prefix+" ", log);
             }
         }
-        d = new_d;
-        minimize(print,prefix +" ",log);
+        else{
+            if(trailingZeros){
+                // a state becomes final when a final state is reachable from it by zeros, as in fixTrailingZerosProblem
+                canonized = false;
+                boolean[] zeroToFinal = zeroPaths(projection, projectedZero, projection.O, true);
+                for(int q = 0; q < Q; q++)
+                    if(zeroToFinal[q]) projection.O[q] = 1;
+            }
+            if(universal){
+                HashSet<Integer> initial_state = new HashSet<Integer>();
+                initial_state.add(q0);
+                TransitionTable dfa = subsetConstruction(projection,initial_state,true,print,prefix+" ",log).complement();
+                minimize(dfa, q0, print, prefix+" ", log);
+            }
+            else
+                minimizeOrKeep(projection, q0, print,prefix +" ",log);
+        }
         long timeAfter = System.currentTimeMillis();
         if(print){
             String msg = prefix + "quantified:" + Q + " states - "+(timeAfter-timeBefore)+"ms";
             log.append(msg + UtilityMethods.newLine());
             System.out.println(msg);
         }
+        return leadingZeros || trailingZeros;
+    }
+
+    /**
+     * @param from the states we start from
+     * @param reverse when true, we follow the transitions on zero backwards
+     * @return R such that R[q] is true iff q is reachable from (or, when reverse is true, reaches) a state p
+     * with from[p] != 0 by reading zeros.
+     */
+    private static boolean[] zeroPaths(TransitionTable table, int zero, int[] from, boolean reverse){
+        /**next[q] lists the states that follow q on a zero, in the direction we are searching*/
+        List<List<Integer>> next = new ArrayList<List<Integer>>();
+        for(int q = 0; q < table.Q; q++) next.add(new ArrayList<Integer>());
+        for(int q = 0; q < table.Q; q++){
+            for(int e = table.rowStart[q]; e < table.rowStart[q+1]; e++){
+                if(table.letter[e] != zero) continue;
+                for(int i = table.targetStart[e]; i < table.targetStart[e+1]; i++){
+                    if(reverse) next.get(table.targets[i]).add(q);
+                    else next.get(q).add(table.targets[i]);
+                }
+            }
+        }
+        boolean[] result = new boolean[table.Q];
+        int[] queue = new int[table.Q];
+        int head = 0, tail = 0;
+        for(int q = 0; q < table.Q; q++){
+            if(from[q] != 0){
+                result[q] = true;
+                queue[tail++] = q;
+            }
+        }
+        while(head < tail){
+            int q = queue[head++];
+            for(int p:next.get(q)){
+                if(!result[p]){
+                    result[p] = true;
+                    queue[tail++] = p;
+                }
+            }
+        }
+        return result;
     }
 
     /**
@@ -858,36 +1146,32 @@ public class Automaton {
             System.out.println(msg);
         }
 
-        // We change the direction of transitions first.
-        List<TreeMap<Integer,List<Integer>>> new_d = new ArrayList<>();
-        for(int q = 0; q < Q;q++)new_d.add(new TreeMap<Integer,List<Integer>>());
-        for(int q = 0 ; q < Q;q++){
-            for(int x:d.get(q).keySet()){
-                for(int dest:d.get(q).get(x)){
-                    if(new_d.get(dest).containsKey(x))
-                        new_d.get(dest).get(x).add(q);
-                    else{
-                        List<Integer> destinationSet = new ArrayList<Integer>();
-                        destinationSet.add(q);
-                        new_d.get(dest).put(x, destinationSet);
-                    }
-                }
-            }
-        }
-        d = new_d;
+        TransitionTable table = new TransitionTable(Q, d, O, alphabetSize);
+        // By Brzozowski's theorem, when this automaton is deterministic and all of its states are reachable,
+        // the subset construction of its reverse is already minimal.
+        boolean minimalResult = table.deterministic && table.allReachableFrom(q0);
         HashSet<Integer> setOfFinalStates = new HashSet<Integer>();
-        /**final states become non final*/
+        /**final states become the initial states*/
         for(int q = 0 ; q < Q;q++){
             if(O.get(q) != 0){
                 setOfFinalStates.add(q);
-                O.set(q, 0);
             }
         }
-        O.set(q0, 1);/**initial state becomes the final state.*/
+        int[] outputs = new int[Q];
+        outputs[q0] = 1;/**initial state becomes the final state.*/
 
-        subsetConstruction(setOfFinalStates,print,prefix+" ",log);
+        TransitionTable dfa = subsetConstruction(table.reverse(outputs),setOfFinalStates,print,prefix+" ",log);
 
-        minimize(print,prefix+" ",log);
+        if(minimalResult){
+            O = dfa.toOutputs();
+            d = dfa.toTransitionFunction();
+            canonized = false;
+            deterministic = true;
+            minimal = true;
+        }
+        else{
+            minimize(dfa, q0, print,prefix+" ",log);
+        }
 
         long timeAfter = System.currentTimeMillis();
         if(print){
@@ -919,6 +1203,27 @@ public class Automaton {
         boolean print,
         String prefix,
         StringBuffer log) throws Exception{
+        /**N is going to hold the cross product*/
+        Automaton N = new Automaton();
+        TransitionTable product = crossProduct(M, op, N, print, prefix, log);
+        N.d = product.toTransitionFunction();
+        N.O = product.toOutputs();
+        N.deterministic = product.deterministic;
+        return N;
+    }
+
+    /**
+     * Same as crossProduct(M,op,print,prefix,log), except that the transitions and outputs of the cross product
+     * are returned as a TransitionTable instead of being stored in N. The rest of N (alphabet, labels, number systems,
+     * Q and q0) is set as usual. This lets and(), or(), ... minimize the cross product without building N.d first.
+     */
+    private TransitionTable crossProduct(
+        Automaton M,
+        String op,
+        Automaton N,
+        boolean print,
+        String prefix,
+        StringBuffer log) throws Exception{
         if(this.TRUE_FALSE_AUTOMATON || M.TRUE_FALSE_AUTOMATON)
             throw new Exception("Invalid use of the crossProduct method: " +
                 "the automata for this method cannot be true or false automata.");
@@ -928,8 +1233,11 @@ public class Automaton {
             M.label.size() != M.A.size())
             throw new Exception("Invalid use of the crossProduct method: " +
                 "the automata for this method must have labeled inputs.");
-        /**N is going to hold the cross product*/
-        Automaton N = new Automaton();
+        if(!op.equals("&") && !op.equals("|")) {
+            // the outputs of the other operators are not monotone in the outputs of their operands
+            determinize(print,prefix+" ",log);
+            M.determinize(print,prefix+" ",log);
+        }
 
         long timeBefore = System.currentTimeMillis();
         if(print){
@@ -977,95 +1285,21 @@ public class Automaton {
         N.alphabetSize = 1;
         for(List<Integer> i:N.A)
             N.alphabetSize *= i.size();
-        List<Integer> allInputsOfN = new ArrayList<Integer>();
-        for(int i = 0 ; i < alphabetSize;i++){
-            for(int j = 0 ; j < M.alphabetSize;j++){
-                List<Integer> inputForN = joinTwoInputsForCrossProduct(decode(i),M.decode(j),sameInputsInMAndThis);
-                if(inputForN == null)
-                    allInputsOfN.add(-1);
-                else
-                    allInputsOfN.add(N.encode(inputForN));
-            }
-        }
-        ArrayList<Integer> statesList = new ArrayList<Integer>();
-        Hashtable<Integer,Integer> statesHash = new Hashtable<Integer,Integer>();
+        int[][] join = joinInputsForCrossProduct(M, N, sameInputsInMAndThis);
+        CrossProduct product = new CrossProduct(
+            new TransitionTable(Q, d, O, alphabetSize),
+            new TransitionTable(M.Q, M.d, M.O, M.alphabetSize),
+            join, N.alphabetSize, op, op.equals("combine") ? combineOutputs.get(combineIndex) : 0);
         N.q0 = 0;
-        statesList.add(q0*M.Q + M.q0);
-        statesHash.put(q0*M.Q + M.q0,0);
-        int currentState = 0;
-        while(currentState<statesList.size()){
-            int s = statesList.get(currentState);
-            int p = s/M.Q;
-            int q = s%M.Q;
-            TreeMap<Integer,List<Integer>> thisStatesTransitions = new TreeMap<Integer,List<Integer>>();
-            N.d.add(thisStatesTransitions);
-            switch(op){
-            case "&":
-                N.O.add((O.get(p) != 0 && M.O.get(q) != 0) ? 1 : 0);
-                break;
-            case "|":
-                N.O.add((O.get(p) != 0 || M.O.get(q) != 0) ? 1 : 0);
-                break;
-            case "^":
-                N.O.add(((O.get(p) != 0 && M.O.get(q) == 0)||(O.get(p) == 0 && M.O.get(q) != 0)) ? 1 : 0);
-                break;
-            case "=>":
-                N.O.add((O.get(p) == 0 || M.O.get(q) != 0) ? 1 : 0);
-                break;
-            case "<=>":
-                N.O.add(((O.get(p) == 0 && M.O.get(q) == 0) || (O.get(p) != 0 && M.O.get(q) != 0)) ? 1 : 0);
-                break;
-            case "<":
-                N.O.add((O.get(p) < M.O.get(q)) ? 1 : 0);
-                break;
-            case ">":
-                N.O.add((O.get(p) > M.O.get(q)) ? 1 : 0);
-                break;
-            case "=":
-                N.O.add((O.get(p) == M.O.get(q)) ? 1 : 0);
-                break;
-            case "!=":
-                N.O.add((O.get(p) != M.O.get(q)) ? 1 : 0);
-                break;
-            case "<=":
-                N.O.add((O.get(p) <= M.O.get(q)) ? 1 : 0);
-                break;
-            case ">=":
-                N.O.add((O.get(p) >= M.O.get(q)) ? 1 : 0);
-                break;
-            case "combine":
-                N.O.add((M.O.get(q) == 1) ? combineOutputs.get(combineIndex) : O.get(p));
-            }
-
-            for(int x:d.get(p).keySet()){
-                for(int y:M.d.get(q).keySet()){
-                    int z = allInputsOfN.get(x*M.alphabetSize+y);
-                    if(z != -1){
-                        List<Integer> dest = new ArrayList<Integer>();
-                        thisStatesTransitions.put(z, dest);
-                        for(int dest1:d.get(p).get(x)){
-                            for(int dest2:M.d.get(q).get(y)){
-                                int dest3 = dest1*M.Q+dest2;
-                                if(!statesHash.containsKey(dest3)){
-                                    statesList.add(dest3);
-                                    statesHash.put(dest3, statesList.size()-1);
-                                }
-                                dest.add(statesHash.get(dest3));
-                            }
-                        }
-                    }
-                }
-            }
-            currentState++;
-        }
-        N.Q = statesList.size();
+        TransitionTable table = parallelProduct ? product.exploreInParallel(q0, M.q0) : product.explore(q0, M.q0);
+        N.Q = table.Q;
         long timeAfter = System.currentTimeMillis();
         if(print){
             String msg = prefix + "computed cross product:" + N.Q + " states - "+(timeAfter-timeBefore)+"ms";
             log.append(msg + UtilityMethods.newLine());
             System.out.println(msg);
         }
-        return N;
+        return table;
     }
 
     /**
@@ -1104,8 +1338,10 @@ public class Automaton {
             System.out.println(msg);
         }
 
-        Automaton N = crossProduct(M,"&",print,prefix,log);
-        N.minimize(print,prefix+" ",log);
+        determinizeAllButOne(Arrays.asList(this, M), print, prefix+" ", log);
+        Automaton N = new Automaton();
+        TransitionTable product = crossProduct(M,"&",N,print,prefix,log);
+        N.minimizeOrKeep(product,N.q0,print,prefix+" ",log);
 
         long timeAfter = System.currentTimeMillis();
         if(print){
@@ -1136,11 +1372,13 @@ public class Automaton {
             System.out.println(msg);
         }
 
+        determinizeAllButOne(Arrays.asList(this, M), print, prefix+" ", log);
         totalize(print,prefix+" ",log);
         M.totalize(print,prefix+" ",log);
-        Automaton N = crossProduct(M,"|",print,prefix,log);
+        Automaton N = new Automaton();
+        TransitionTable product = crossProduct(M,"|",N,print,prefix,log);
 
-        N.minimize(print,prefix +" ",log);
+        N.minimizeOrKeep(product,N.q0,print,prefix +" ",log);
         N.applyAllRepresentations();
 
         long timeAfter = System.currentTimeMillis();
@@ -1153,6 +1391,104 @@ public class Automaton {
         return N;
     }
 
+    /**
+     * Computes the conjunction of all automata in one simultaneous product, followed by a single minimization,
+     * instead of a chain of binary products that are minimized one by one.
+     * @param automata
+     * @return automata[0] and automata[1] and ... and automata[k-1]
+     * @throws Exception
+     */
+    public static Automaton and(
+        List<Automaton> automata,
+        boolean print,
+        String prefix,
+        StringBuffer log) throws Exception {
+        List<Automaton> operands = new ArrayList<Automaton>();
+        for(Automaton M:automata) {
+            if(M.TRUE_FALSE_AUTOMATON && !M.TRUE_AUTOMATON) return new Automaton(false);
+            if(!M.TRUE_FALSE_AUTOMATON) operands.add(M);
+        }
+        if(operands.isEmpty()) return new Automaton(true);
+        if(operands.size() == 1) return operands.get(0);
+        return multiProduct(operands, "&", print, prefix, log);
+    }
+
+    /**
+     * Computes the disjunction of all automata in one simultaneous product, followed by a single minimization.
+     * @param automata
+     * @return automata[0] or automata[1] or ... or automata[k-1]
+     * @throws Exception
+     */
+    public static Automaton or(
+        List<Automaton> automata,
+        boolean print,
+        String prefix,
+        StringBuffer log) throws Exception {
+        List<Automaton> operands = new ArrayList<Automaton>();
+        for(Automaton M:automata) {
+            if(M.TRUE_FALSE_AUTOMATON && M.TRUE_AUTOMATON) return new Automaton(true);
+            if(!M.TRUE_FALSE_AUTOMATON) operands.add(M);
+        }
+        if(operands.isEmpty()) return new Automaton(false);
+        if(operands.size() == 1) return operands.get(0);
+        determinizeAllButOne(operands, print, prefix+" ", log);
+        for(Automaton M:operands) M.totalize(print,prefix+" ",log);
+        Automaton N = multiProduct(operands, "|", print, prefix, log);
+        N.applyAllRepresentations();
+        return N;
+    }
+
+    /**
+     * Used in and(List) and or(List). None of the automata can be true or false automata.
+     * @param op "&" or "|"
+     * @return the minimized product of automata.
+     */
+    private static Automaton multiProduct(
+        List<Automaton> automata,
+        String op,
+        boolean print,
+        String prefix,
+        StringBuffer log) throws Exception {
+        for(Automaton M:automata) {
+            if(M.label == null || M.label.size() != M.A.size())
+                throw new Exception("Invalid use of the crossProduct method: " +
+                    "the automata for this method must have labeled inputs.");
+        }
+        long timeBefore = System.currentTimeMillis();
+        String states = "";
+        for(Automaton M:automata) {
+            states += (states.isEmpty() ? "" : " - ") + M.Q + " states";
+        }
+        if(print) {
+            String msg = prefix + "computing " + op + ":" + states;
+            log.append(msg + UtilityMethods.newLine());
+            System.out.println(msg);
+        }
+
+        determinizeAllButOne(automata, print, prefix+" ", log);
+        Automaton N = new Automaton();
+        MultiProduct product = new MultiProduct(automata, N, op);
+        int[] initial = new int[automata.size()];
+        for(int i = 0; i < initial.length; i++) initial[i] = automata.get(i).q0;
+        TransitionTable table = product.explore(initial);
+        N.Q = table.Q;
+        N.q0 = 0;
+        if(print){
+            String msg = prefix + "computed cross product:" + N.Q + " states - "+(System.currentTimeMillis()-timeBefore)+"ms";
+            log.append(msg + UtilityMethods.newLine());
+            System.out.println(msg);
+        }
+        N.minimizeOrKeep(table,N.q0,print,prefix+" ",log);
+
+        long timeAfter = System.currentTimeMillis();
+        if(print){
+            String msg = prefix + "computed " + op + ":" + N.Q + " states - "+(timeAfter-timeBefore)+"ms";
+            log.append(msg + UtilityMethods.newLine());
+            System.out.println(msg);
+        }
+        return N;
+    }
+
     /**
      *
      * @param M
@@ -1184,10 +1520,13 @@ public class Automaton {
             System.out.println(msg);
         }
 
+        determinize(print,prefix+" ",log);
+        M.determinize(print,prefix+" ",log);
         totalize(print,prefix+" ",log);
         M.totalize(print,prefix+" ",log);
-        Automaton N = crossProduct(M,"^",print,prefix + " ", log);
-        N.minimize(print,prefix+" ",log);
+        Automaton N = new Automaton();
+        TransitionTable product = crossProduct(M,"^",N,print,prefix + " ", log);
+        N.minimize(product,N.q0,print,prefix+" ",log);
         N.applyAllRepresentations();
 
         long timeAfter = System.currentTimeMillis();
@@ -1220,10 +1559,13 @@ public class Automaton {
             System.out.println(msg);
         }
 
+        determinize(print,prefix+" ",log);
+        M.determinize(print,prefix+" ",log);
         totalize(print,prefix+" ",log);
         M.totalize(print,prefix+" ",log);
-        Automaton N = crossProduct(M,"=>",print,prefix+" ",log);
-        N.minimize(print,prefix+" ",log);
+        Automaton N = new Automaton();
+        TransitionTable product = crossProduct(M,"=>",N,print,prefix+" ",log);
+        N.minimize(product,N.q0,print,prefix+" ",log);
         N.applyAllRepresentations();
 
         long timeAfter = System.currentTimeMillis();
@@ -1265,10 +1607,13 @@ public class Automaton {
             System.out.println(msg);
         }
 
+        determinize(print,prefix+" ",log);
+        M.determinize(print,prefix+" ",log);
         totalize(print,prefix+" ",log);
         M.totalize(print,prefix+" ",log);
-        Automaton N = crossProduct(M,"<=>",print,prefix+" ",log);
-        N.minimize(print,prefix+" ",log);
+        Automaton N = new Automaton();
+        TransitionTable product = crossProduct(M,"<=>",N,print,prefix+" ",log);
+        N.minimize(product,N.q0,print,prefix+" ",log);
         N.applyAllRepresentations();
 
         long timeAfter = System.currentTimeMillis();
@@ -1298,9 +1643,11 @@ public class Automaton {
             System.out.println(msg);
         }
 
+        determinize(print,prefix+" ",log);
         totalize(print,prefix+" ",log);
         for(int q = 0 ; q < Q;q++)
             O.set(q, O.get(q) != 0 ? 0 : 1 );
+        minimal = false;
 
         minimize(print,prefix+" ",log);
         applyAllRepresentations();
@@ -1320,9 +1667,43 @@ public class Automaton {
             if(TRUE_AUTOMATON != M.TRUE_AUTOMATON)return false;
             return true;
         }
-        dk.brics.automaton.Automaton Y = M.to_dk_bricks_automaton();
-        dk.brics.automaton.Automaton X = to_dk_bricks_automaton();
-        return X.equals(Y);
+        return distinguishingWord(M) == null;
+    }
+
+    /**
+     * Compares the languages of this automaton and M, as equals does. Inputs are compared by their encodings, so both
+     * automata should have the same alphabets.
+     * @return a word accepted by exactly one of this automaton and M, as a list of inputs (see decode),
+     * or null if they accept the same words.
+     * @throws Exception when exactly one of them is a true/false automaton.
+     */
+    public List<List<Integer>> counterexample(Automaton M)throws Exception{
+        if(TRUE_FALSE_AUTOMATON || M.TRUE_FALSE_AUTOMATON){
+            if(TRUE_FALSE_AUTOMATON != M.TRUE_FALSE_AUTOMATON)
+                throw new Exception("cannot compare a true/false automaton with an automaton that has inputs");
+            return TRUE_AUTOMATON == M.TRUE_AUTOMATON ? null : new ArrayList<List<Integer>>();
+        }
+        int[] word = distinguishingWord(M);
+        return word == null ? null : decode(word);
+    }
+
+    /**
+     * Used in equals and counterexample. Non-deterministic automata are determinized first.
+     * @return a word accepted by exactly one of this automaton and M, as encoded inputs, or null.
+     */
+    private int[] distinguishingWord(Automaton M) throws Exception{
+        TransitionTable first = new TransitionTable(Q, d, O, alphabetSize);
+        TransitionTable second = new TransitionTable(M.Q, M.d, M.O, M.alphabetSize);
+        int firstInitial = q0, secondInitial = M.q0;
+        if(!first.deterministic){
+            first = new SubsetConstruction(first).determinize(new int[]{q0});
+            firstInitial = 0;
+        }
+        if(!second.deterministic){
+            second = new SubsetConstruction(second).determinize(new int[]{M.q0});
+            secondInitial = 0;
+        }
+        return new Equivalence(first, second).distinguishingWord(firstInitial, secondInitial);
     }
 
     public Automaton combine(List<String> automataNames, List<Integer> outputs, boolean print, String prefix, StringBuffer log) throws Exception {
@@ -1341,6 +1722,7 @@ public class Automaton {
 				first.O.set(q, outputs.get(0));
 			}
 		}
+		first.minimal = false;
 		first.combineIndex = 1;
         first.combineOutputs = outputs;
 		while (subautomata.size() > 0) {
@@ -1359,6 +1741,7 @@ public class Automaton {
             product.combineOutputs = first.combineOutputs;
 			first = product;
 		}
+        first.minimizeWithOutput(print, prefix+" ", log);
         return first;
     }
 
@@ -1584,7 +1967,10 @@ public class Automaton {
         label = M.label;
         canonized = M.canonized;
         labelSorted = M.labelSorted;
+        deterministic = M.deterministic;
+        minimal = M.minimal;
         d = M.d;
+        shared = M.shared;
     }
 
     /**
@@ -1598,6 +1984,7 @@ public class Automaton {
             log.append(msg + UtilityMethods.newLine());
             System.out.println(msg);
         }
+        unshare();
         //we first check if the automaton is totalized
         boolean totalized = true;
         for(int q = 0 ; q < Q;q++){
@@ -1611,6 +1998,8 @@ public class Automaton {
             }
         }
         if(!totalized){
+            // the dead state we add is not in the minimal automaton, but the transition function stays deterministic
+            minimal = false;
             O.add(0);
             Q++;
             for(int x = 0;x < alphabetSize;x++){
@@ -1646,8 +2035,9 @@ public class Automaton {
             log.append(msg + UtilityMethods.newLine());
             System.out.println(msg);
         }
-        Automaton M = crossProduct(W,operator,print,prefix+" ",log);
-        M.minimize(print,prefix+" ",log);
+        Automaton M = new Automaton();
+        TransitionTable product = crossProduct(W,operator,M,print,prefix+" ",log);
+        M.minimize(product,M.q0,print,prefix+" ",log);
         long timeAfter = System.currentTimeMillis();
         if(print){
             String msg = prefix + "compared ("+operator+ "):" + Q + " states - "+(timeAfter-timeBefore)+"ms";
@@ -1696,6 +2086,7 @@ public class Automaton {
                 break;
             }
         }
+        minimal = false;
         minimize(print,prefix+" ",log);
         long timeAfter = System.currentTimeMillis();
         if(print){
@@ -1714,19 +2105,7 @@ public class Automaton {
     public void write(String address){
         try {
             PrintWriter out = new PrintWriter(address, "UTF-8");
-            if(TRUE_FALSE_AUTOMATON){
-                if(TRUE_AUTOMATON)
-                    out.write("true");
-                else
-                    out.write("false");
-            }
-            else{
-                canonize();
-                writeAlphabet(out);
-                for(int q = 0; q < Q;q++){
-                    writeState(out, q);
-                }
-            }
+            write(out);
             out.close();
         } catch (FileNotFoundException e2) {
             e2.printStackTrace();
@@ -1735,6 +2114,27 @@ public class Automaton {
         }
     }
 
+    /**
+     * Writes this automaton to out, in the format of write(String address). Does not close out.
+     * @param out
+     */
+    void write(PrintWriter out){
+        if(TRUE_FALSE_AUTOMATON){
+            if(TRUE_AUTOMATON)
+                out.write("true");
+            else
+                out.write("false");
+        }
+        else{
+            canonize();
+            writeAlphabet(out);
+            HashMap<Integer,String> letters = new HashMap<Integer,String>();
+            for(int q = 0; q < Q;q++){
+                writeState(out, q, letters);
+            }
+        }
+    }
+
     private void writeAlphabet(PrintWriter out) {
         for(int i = 0; i < A.size();i++){
             List<Integer> l = A.get(i);
@@ -1760,15 +2160,25 @@ public class Automaton {
         out.write(UtilityMethods.newLine());
     }
 
-    private void writeState(PrintWriter out,int q){
+    /**
+     * letters caches the string form of the inputs, since the same input is usually read by many states.
+     */
+    private void writeState(PrintWriter out,int q,HashMap<Integer,String> letters){
         out.write(
             UtilityMethods.newLine() + q + " " +
             Integer.toString(O.get(q)) + UtilityMethods.newLine());
         for(int n: d.get(q).keySet()){
-            List<Integer> l = decode(n);
-            for(int j = 0 ; j < l.size();j++)
-                out.write(Integer.toString(l.get(j)) + " ");
-            out.write("->");
+            String input = letters.get(n);
+            if(input == null){
+                StringBuilder sb = new StringBuilder();
+                List<Integer> l = decode(n);
+                for(int j = 0 ; j < l.size();j++)
+                    sb.append(l.get(j)).append(' ');
+                sb.append("->");
+                input = sb.toString();
+                letters.put(n, input);
+            }
+            out.write(input);
             for(int dest:d.get(q).get(n))
                 out.write(" " + Integer.toString(dest));
             out.write(UtilityMethods.newLine());
@@ -1816,15 +2226,23 @@ public class Automaton {
             gv.addln("node [shape = point ]; qi");
             gv.addln("qi -> " + q0+";");
 
+            TransitionTable table = new TransitionTable(Q, d, O, alphabetSize);
+            HashMap<Integer,String> letters = new HashMap<Integer,String>();
             TreeMap<Integer, TreeMap<Integer, List<String>>> transitions =
                 new TreeMap<Integer, TreeMap<Integer, List<String>>>();
             for(int q = 0; q < Q; q++) {
                 transitions.put(q, new TreeMap<>());
-                for(int x : d.get(q).keySet()) {
-                    for(int dest : d.get(q).get(x)) {
+                for(int e = table.rowStart[q]; e < table.rowStart[q+1]; e++) {
+                    int x = table.letter[e];
+                    String transition_label = letters.get(x);
+                    if(transition_label == null) {
+                        transition_label = UtilityMethods.toTransitionLabel(decode(x));
+                        letters.put(x, transition_label);
+                    }
+                    for(int i = table.targetStart[e]; i < table.targetStart[e+1]; i++) {
+                        int dest = table.targets[i];
                         transitions.get(q).putIfAbsent(dest, new ArrayList<String>());
-                        transitions.get(q).get(dest).add(
-                            UtilityMethods.toTransitionLabel(decode(x)));
+                        transitions.get(q).get(dest).add(transition_label);
                     }
                 }
             }
@@ -1993,42 +2411,173 @@ public class Automaton {
     }
 
     /**
-     * We can choose to do Valmari or Hopcroft.
+     * Minimizes this automaton with the engine selected by setMinimizationEngine.
      * @throws Exception
      */
     public void minimize(boolean print, String prefix, StringBuffer log) throws Exception {
+        if(minimal){
+            assert flagsAreConsistent() : "minimal flag is set on an automaton that is not minimal";
+            return;
+        }
+        minimize(new TransitionTable(Q, d, O, alphabetSize), q0, print, prefix, log);
+    }
+
+    /**
+     * Minimizes this automaton as an automaton with output (DFAO), e.g., a word automaton: two states are merged iff
+     * they have the same output on every input. Unlike minimize, it keeps the states with output 0, so it does not
+     * change the word that the automaton represents.
+     * If this automaton is not deterministic, or it is already minimal, it is left unchanged.
+     * @throws Exception
+     */
+    public void minimizeWithOutput(boolean print, String prefix, StringBuffer log) throws Exception {
+        if(TRUE_FALSE_AUTOMATON || minimal) return;
+        TransitionTable table = new TransitionTable(Q, d, O, alphabetSize);
+        if(!table.deterministic) return;
         long timeBefore = System.currentTimeMillis();
         if(print) {
-            String msg = prefix + "Minimizing: " + Q + " states.";
+            String msg = prefix + "Minimizing with output: " + Q + " states.";
             System.out.println("----- " + msg);
             log.append(msg + UtilityMethods.newLine());
         }
 
-        minimize_valmari(print, prefix + " ", log);
-        //minimize_hopcroft();
+        int initial_state = q0;
+        if(!table.allReachableFrom(q0)){
+            table = table.reachablePart(q0);
+            initial_state = 0;
+        }
+        ValmariMinimizer minimizer = valmariMinimizers.get();
+        TransitionTable result = minimizer.minimizeWithOutputs(table, initial_state);
+        // when nothing can be merged, we keep the numbering of the states, e.g., the one a word automaton was written with
+        if(result.Q < Q){
+            Q = result.Q;
+            q0 = minimizer.initialState();
+            O = result.toOutputs();
+            d = result.toTransitionFunction();
+            canonized = false;
+        }
+        deterministic = true;
 
         long timeAfter = System.currentTimeMillis();
         if(print) {
-            String msg = prefix + "Minimized:" + Q + " states - " + (timeAfter-timeBefore) + "ms.";
+            String msg = prefix + "Minimized with output:" + Q + " states - " + (timeAfter-timeBefore) + "ms.";
             System.out.println("----- " + msg);
             log.append(msg + UtilityMethods.newLine());
+        }
+    }
+
+    /**
+     * The cost model of lazy determinization. A non-deterministic table is kept as it is only when it is small, and
+     * has few transitions per letter on average, so that postponing its determinization cannot blow up much.
+     * Automata with outputs other than 0 and 1 are always determinized.
+     */
+    private static boolean keepNondeterministic(TransitionTable table) {
+        if(!lazyDeterminization || table.deterministic || table.Q > LAZY_STATE_LIMIT) return false;
+        if(table.numberOfTransitions() > LAZY_BRANCHING_LIMIT * table.numberOfEdges()) return false;
+        for(int q = 0; q < table.Q; q++)
+            if(table.O[q] != 0 && table.O[q] != 1) return false;
+        return true;
+    }
+
+    /**
+     * Stores the automaton given by table and initial_state in this automaton, and minimizes it, unless it is
+     * non-deterministic and keepNondeterministic lets it stay so.
+     * Q should be the number of states of table.
+     * @throws Exception
+     */
+    private void minimizeOrKeep(TransitionTable table, int initial_state, boolean print, String prefix, StringBuffer log) throws Exception {
+        Q = table.Q;
+        if(!keepNondeterministic(table)) {
+            minimize(table, initial_state, print, prefix, log);
+            return;
+        }
+        q0 = initial_state;
+        O = table.toOutputs();
+        d = table.toTransitionFunction();
+        deterministic = false;
+        minimal = false;
+        canonized = false;
+        if(print) {
+            String msg = prefix + "kept non-deterministic:" + Q + " states";
+            log.append(msg + UtilityMethods.newLine());
             System.out.println(msg);
         }
     }
 
     /**
-     * Uses the Hopcroft minimization algorithm of the package dk.brics.automaton to minimize this automaton.
+     * Part of the cost model of lazy determinization: a product of several non-deterministic automata can reach
+     * many more tuples of states than the product of their determinizations. So only the largest non-deterministic
+     * operand of a product stays non-deterministic, and the others are determinized.
+     * @throws Exception
      */
-    private void minimize_hopcroft()throws Exception{
-        dk.brics.automaton.Automaton M = to_dk_bricks_automaton();
-        if(M.isDeterministic()){
-            M.minimize();
+    private static void determinizeAllButOne(List<Automaton> automata, boolean print, String prefix, StringBuffer log) throws Exception {
+        Automaton largest = null;
+        for(Automaton M:automata) {
+            if(M.TRUE_FALSE_AUTOMATON || M.deterministic) continue;
+            if(new TransitionTable(M.Q, M.d, M.O, M.alphabetSize).deterministic) {
+                M.deterministic = true;
+                continue;
+            }
+            if(largest == null || M.Q > largest.Q) largest = M;
         }
-        else{
-            M.determinize();
-            M.minimize();
+        for(Automaton M:automata) {
+            if(M != largest) M.determinize(print, prefix, log);
+        }
+    }
+
+    /**
+     * Determinizes and minimizes this automaton, if it is not deterministic, e.g., because lazy determinization kept
+     * it non-deterministic. Deterministic automata are left as they are.
+     * @throws Exception
+     */
+    public void determinize(boolean print, String prefix, StringBuffer log) throws Exception {
+        if(TRUE_FALSE_AUTOMATON || deterministic) return;
+        TransitionTable table = new TransitionTable(Q, d, O, alphabetSize);
+        if(table.deterministic) {
+            deterministic = true;
+            return;
+        }
+        minimize(table, q0, print, prefix, log);
+    }
+
+    /**
+     * Only used in assertions: recomputes deterministic and minimal from scratch.
+     * @return false if one of the flags is set, but does not hold.
+     */
+    boolean flagsAreConsistent() throws Exception {
+        if(TRUE_FALSE_AUTOMATON) return true;
+        TransitionTable table = new TransitionTable(Q, d, O, alphabetSize);
+        if(deterministic && !table.deterministic) return false;
+        if(minimal){
+            if(!table.deterministic || !table.allReachableFrom(q0)) return false;
+            for(int q = 0; q < Q; q++)
+                if(O.get(q) != 0 && O.get(q) != 1) return false;
+            if(new ValmariMinimizer().minimize(table, q0).Q != Q) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Minimizes the automaton given by table and initial_state, and stores the result in this automaton.
+     * Q should be the number of states of table.
+     * @throws Exception
+     */
+    private void minimize(TransitionTable table, int initial_state, boolean print, String prefix, StringBuffer log) throws Exception {
+        long timeBefore = System.currentTimeMillis();
+        if(print) {
+            String msg = prefix + "Minimizing: " + Q + " states.";
+            System.out.println("----- " + msg);
+            log.append(msg + UtilityMethods.newLine());
+        }
+
+        minimize_with_engine(table, initial_state, print, prefix + " ", log);
+
+        long timeAfter = System.currentTimeMillis();
+        if(print) {
+            String msg = prefix + "Minimized:" + Q + " states - " + (timeAfter-timeBefore) + "ms.";
+            System.out.println("----- " + msg);
+            log.append(msg + UtilityMethods.newLine());
+            System.out.println(msg);
         }
-        setThisAutomatonToRepresent(M);
     }
 
     /**
@@ -2085,6 +2634,8 @@ public class Automaton {
         O = new ArrayList<Integer>();
         d = new ArrayList<TreeMap<Integer,List<Integer>>>();
         canonized = false;
+        deterministic = true;
+        minimal = false;
         for(int q = 0 ; q < Q;q++){
             State state = setOfStates.get(q);
             if(state.isAccept())O.add(1);
@@ -2115,69 +2666,51 @@ public class Automaton {
         sortLabel();
         if(TRUE_FALSE_AUTOMATON) return;
 
-        Queue<Integer> state_queue = new LinkedList<Integer>();
-        state_queue.add(q0);
-
-        /**map holds the permutation we need to apply to Q. In other words if map = {(0,3),(1,10),...} then
-        *we have got to send Q[0] to Q[3] and Q[1] to Q[10]*/
-        HashMap<Integer,Integer> map = new HashMap<Integer,Integer>();
-        map.put(q0,0);
-        int i = 1;
-        while(!state_queue.isEmpty()) {
-            int q = state_queue.poll();
-            for(int x:d.get(q).keySet()) {
-                for(int p: d.get(q).get(x)) {
-                    if(!map.containsKey(p)) {
-                        map.put(p, i++);
-                        state_queue.add(p);
+        /**map holds the permutation we need to apply to Q. In other words if map = {3,10,...} then
+        *we have got to send Q[0] to Q[3] and Q[1] to Q[10]. Unreachable states are mapped to -1.
+        *state_queue holds the reachable states in breadth-first order, i.e., state_queue[map[q]] = q.*/
+        int[] map = new int[Q];
+        Arrays.fill(map, -1);
+        int[] state_queue = new int[Q];
+        int head = 0, tail = 0;
+        map[q0] = tail;
+        state_queue[tail++] = q0;
+        while(head < tail) {
+            int q = state_queue[head++];
+            for(List<Integer> destination:d.get(q).values()) {
+                for(int p:destination) {
+                    if(map[p] == -1) {
+                        map[p] = tail;
+                        state_queue[tail++] = p;
                     }
                 }
             }
         }
 
-        q0 = map.get(q0);
-        int newQ = map.size();
-        List<Integer> newO = new ArrayList<Integer>();
-        for(int q = 0 ; q < newQ;q++) {
-            newO.add(0);
-        }
-        for(int q = 0; q < Q;q++) {
-            if(map.containsKey(q)) {
-                newO.set(map.get(q),O.get(q));
-            }
-        }
-
-        List<TreeMap<Integer,List<Integer>>> new_d = new ArrayList<TreeMap<Integer,List<Integer>>>();
-        for(int q = 0 ; q < newQ;q++) {
-            new_d.add(null);
-        }
-
-        for(int q = 0; q < Q;q++) {
-            if(map.containsKey(q)) {
-                new_d.set(map.get(q), d.get(q));
-            }
-        }
-
-        Q = newQ;
-        O = newO;
-        d = new_d;
-        for(int q = 0 ; q < Q;q++) {
+        int newQ = tail;
+        List<Integer> newO = new ArrayList<Integer>(newQ);
+        List<TreeMap<Integer,List<Integer>>> new_d = new ArrayList<TreeMap<Integer,List<Integer>>>(newQ);
+        for(int i = 0; i < newQ;i++) {
+            int q = state_queue[i];
+            newO.add(O.get(q));
+            TreeMap<Integer,List<Integer>> transitions = new TreeMap<Integer,List<Integer>>();
             for(int x:d.get(q).keySet()) {
                 List<Integer> newDestination = new ArrayList<Integer>();
                 for(int p:d.get(q).get(x)) {
-                    if(map.containsKey(p)) {
-                        newDestination.add(map.get(p));
-                    }
+                    newDestination.add(map[p]);
                 }
-
                 if(newDestination.size() > 0) {
-                    d.get(q).put(x,newDestination);
-                } else {
-                    d.get(q).remove(x);
+                    transitions.put(x,newDestination);
                 }
             }
+            new_d.add(transitions);
         }
 
+        q0 = 0;
+        Q = newQ;
+        O = newO;
+        d = new_d;
+
         canonized = true;
     }
 
@@ -2245,12 +2778,14 @@ public class Automaton {
         encoder = permuted_encoder;
         NS = UtilityMethods.permute(NS,label_permutation);
 
+        List<TreeMap<Integer,List<Integer>>> new_d = new ArrayList<TreeMap<Integer,List<Integer>>>();
         for(int q = 0; q < Q;q++){
             TreeMap<Integer,List<Integer>> permuted_d = new TreeMap<Integer,List<Integer>>();
             for(int x:d.get(q).keySet())
                 permuted_d.put(encoded_input_permutation[x], d.get(q).get(x));
-            d.set(q,permuted_d);
+            new_d.add(permuted_d);
         }
+        d = new_d;
     }
 
     /**
@@ -2275,6 +2810,15 @@ public class Automaton {
         return l;
     }
 
+    /**
+     * @return the inputs of the encoded word, see decode(int).
+     */
+    private List<List<Integer>> decode(int[] word){
+        List<List<Integer>> inputs = new ArrayList<List<Integer>>(word.length);
+        for(int x:word) inputs.add(decode(x));
+        return inputs;
+    }
+
     /**
      * Input to dk.brics.automaton.Automata is a char. Input to Automata.Automaton is List<Integer>.
      * Thus this method transforms a List<Integer> to its corresponding integer.
@@ -2405,85 +2949,225 @@ public class Automaton {
         d = null;
         canonized = false;
         labelSorted = false;
+        deterministic = false;
+        minimal = false;
     }
 
+    /**
+     * @return true if this automaton accepts no word, i.e., no final state is reachable from q0.
+     */
     protected boolean isEmpty()throws Exception{
         if(TRUE_FALSE_AUTOMATON){
             return !TRUE_AUTOMATON;
         }
-        return to_dk_bricks_automaton().isEmpty();
+        return new TransitionTable(Q, d, O, alphabetSize).acceptedWord(q0) == null;
     }
 
-    private void subsetConstruction(HashSet<Integer> initial_state,boolean print, String prefix, StringBuffer log)throws Exception{
-        long timeBefore = System.currentTimeMillis();
-        if(print){
-            String msg = prefix + "determinizing:" + Q + " states";
-            log.append(msg + UtilityMethods.newLine());
-            System.out.println(msg);
+    /**
+     * @return a shortest word accepted by this automaton, as a list of inputs (see decode), or null if it accepts
+     * no word.
+     */
+    public List<List<Integer>> acceptedWord()throws Exception{
+        if(TRUE_FALSE_AUTOMATON){
+            return TRUE_AUTOMATON ? new ArrayList<List<Integer>>() : null;
         }
-        int number_of_states = 0,current_state = 0;
-        Hashtable<HashSet<Integer>,Integer> statesHash = new Hashtable<HashSet<Integer>,Integer>();
-        List<HashSet<Integer>> statesList = new ArrayList<HashSet<Integer>>();
-        statesList.add(initial_state);
-        statesHash.put(initial_state, statesList.size()-1);
-        number_of_states++;
+        int[] word = new TransitionTable(Q, d, O, alphabetSize).acceptedWord(q0);
+        return word == null ? null : decode(word);
+    }
 
-        List<TreeMap<Integer,List<Integer>>> new_d = new ArrayList<TreeMap<Integer,List<Integer>>>();
+    /**
+     * Decides whether automata[0] and ... and automata[k-1] accept a common word, by exploring their product in
+     * breadth-first order until it reaches a final state. Unlike and(List), it builds neither the product nor its
+     * minimization, and it stops at the first accepted word.
+     * None of the automata can be true or false automata, and they must have labeled inputs.
+     * @param labels the labels of the inputs of the product are added to labels
+     * @return a shortest word accepted by all the automata, as a list of inputs of the product (see decode),
+     * or null if there is none.
+     * @throws Exception
+     */
+    public static List<List<Integer>> acceptedWord(List<Automaton> automata, List<String> labels) throws Exception{
+        determinizeAllButOne(automata, false, null, null);
+        Automaton N = new Automaton();
+        MultiProduct product = new MultiProduct(automata, N, "&");
+        int[] initial = new int[automata.size()];
+        for(int i = 0; i < initial.length; i++) initial[i] = automata.get(i).q0;
+        int[] word = product.acceptedWord(initial);
+        labels.addAll(N.label);
+        return word == null ? null : N.decode(word);
+    }
 
-        while(current_state < number_of_states){
-            HashSet<Integer> state = statesList.get(current_state);
-            new_d.add(new TreeMap<Integer,List<Integer>>());
-            HashSet<Integer> dest;
-            for(int in = 0;in!=alphabetSize;++in){
-                dest = new HashSet<Integer>();
-                for(int q:state){
-                    if(d.get(q).containsKey(in))
-                        for(int p:d.get(q).get(in))
-                            dest.add(p);
+    /**
+     * The dual of acceptedWord(List, List): looks for a word that is accepted by all the premises and rejected by one
+     * of the automata, among the words whose inputs are valid representations in their number systems, as in
+     * applyAllRepresentations. With no premises, this decides whether the conjunction of automata is universal,
+     * and otherwise whether the conjunction of premises implies it.<br>
+     * The premises and the valid representations are explored in one simultaneous product. The automata are
+     * never complemented: Antichain follows the sets of states they can be in, one automaton at a time.
+     * The inputs of an automaton that the product does not read are free, and only the letters it has transitions
+     * on are followed, so the product alphabet of all inputs is never enumerated.
+     * None of the automata can be true or false automata, and they must have labeled inputs.
+     * @param labels the labels of the inputs of premises and automata are added to labels
+     * @return such a word for the first automaton that rejects one, as a list of inputs (see decode),
+     * or null if there is none.
+     * @throws Exception if two inputs with the same label have different alphabets, as in crossProduct.
+     */
+    public static List<List<Integer>> rejectedWord(
+        List<Automaton> premises,
+        List<Automaton> automata,
+        List<String> labels) throws Exception{
+        /**the inputs of premises and automata, with their alphabets and number systems*/
+        List<String> inputs = new ArrayList<String>();
+        List<List<Integer>> alphabets = new ArrayList<List<Integer>>();
+        List<NumberSystem> numberSystems = new ArrayList<NumberSystem>();
+        List<Automaton> all = new ArrayList<Automaton>(premises);
+        all.addAll(automata);
+        for(Automaton M:all) {
+            for(int j = 0; j < M.A.size(); j++) {
+                int p = inputs.indexOf(M.label.get(j));
+                if(p == -1) {
+                    inputs.add(M.label.get(j));
+                    alphabets.add(M.A.get(j));
+                    numberSystems.add(M.NS.get(j));
                 }
-                if(!dest.isEmpty()){
-                    if(statesHash.containsKey(dest)){
-                        List<Integer> destination = new ArrayList<Integer>();
-                        destination.add(statesHash.get(dest));
-                        new_d.get(current_state).put(in, destination);
-                    }
-                    else{
-                        statesList.add(dest);
-                        number_of_states++;
-                        statesHash.put(dest,number_of_states-1);
-                        List<Integer> destination = new ArrayList<Integer>();
-                        destination.add(number_of_states-1);
-                        new_d.get(current_state).put(in, destination);
+                else {
+                    if(!UtilityMethods.areEqual(alphabets.get(p), M.A.get(j))) {
+                        throw new Exception("in computing cross product of two automaton, variables with the same label must have the same alphabet");
                     }
+                    if(numberSystems.get(p) == null)
+                        numberSystems.set(p, M.NS.get(j));
                 }
             }
-            current_state++;
+        }
+        labels.addAll(inputs);
+        determinizeAllButOne(premises, false, null, null);
+        List<Automaton> positive = new ArrayList<Automaton>(premises);
+        for(int i = 0; i < inputs.size(); i++) {
+            NumberSystem ns = numberSystems.get(i);
+            if(ns != null && ns.getAllRepresentations() != null && ns.should_we_use_allRepresentations()) {
+                Automaton R = ns.getAllRepresentations();
+                R.bind(inputs.get(i));
+                positive.add(R);
+            }
+        }
+        if(positive.isEmpty()) {
+            /**nothing constrains the inputs: the product is a single state without inputs, that accepts*/
+            Automaton any = new Automaton();
+            any.alphabetSize = 1;
+            any.Q = 1;
+            any.O.add(1);
+            any.d.add(new TreeMap<Integer,List<Integer>>());
+            any.d.get(0).put(0, new ArrayList<Integer>(Arrays.asList(0)));
+            positive.add(any);
         }
 
-        d = new_d;
-        Q = number_of_states;
-        q0 = 0;
-        List<Integer> newO = new ArrayList<Integer>();
-        for(HashSet<Integer> state:statesList){
-            boolean flag = false;
-            for(int q:state){
-                if(O.get(q)!=0){
-                    newO.add(1);
-                    flag=true;
-                    break;
+        /**
+         * The product only has the inputs of positive. The other inputs of an automaton are free: they can take any
+         * value, and Antichain takes care of them, without enumerating the whole alphabet.
+         */
+        Automaton N = new Automaton();
+        MultiProduct product = new MultiProduct(positive, N, "&");
+        int[] initial = new int[positive.size()];
+        for(int i = 0; i < initial.length; i++) initial[i] = positive.get(i).q0;
+        TransitionTable table = product.explore(initial);
+        for(Automaton M:automata) {
+            /**the letter of M that is read on each edge of the product, with the free inputs at their first value*/
+            List<Integer> encoder = new ArrayList<Integer>();
+            for(int j = 0, stride = 1; j < M.A.size(); stride *= M.A.get(j++).size()) encoder.add(stride);
+            List<Integer> free = new ArrayList<Integer>();
+            for(int j = 0; j < M.A.size(); j++) {
+                if(!N.label.contains(M.label.get(j))) free.add(j);
+            }
+            int[] projection = new int[table.numberOfEdges()];
+            for(int e = 0; e < projection.length; e++) {
+                List<Integer> x = N.decode(table.letter[e]);
+                List<Integer> y = new ArrayList<Integer>(M.A.size());
+                for(int j = 0; j < M.A.size(); j++) {
+                    int p = N.label.indexOf(M.label.get(j));
+                    y.add(p == -1 ? M.A.get(j).get(0) : x.get(p));
                 }
+                projection[e] = M.encode(y, M.A, encoder);
+            }
+            int[] freeStride = new int[free.size()], freeSize = new int[free.size()];
+            for(int j = 0; j < free.size(); j++) {
+                freeStride[j] = encoder.get(free.get(j));
+                freeSize[j] = M.A.get(free.get(j)).size();
+            }
+            Antichain antichain = new Antichain(table, projection, new TransitionTable(M.Q, M.d, M.O, M.alphabetSize),
+                freeStride, freeSize);
+            int[] word = antichain.rejectedWord(0, M.q0);
+            if(word == null) continue;
+            /**the inputs that are neither in the product nor in M are not read by anyone: we take their first value*/
+            List<List<Integer>> result = new ArrayList<List<Integer>>(word.length);
+            for(int k = 0; k < word.length; k++) {
+                List<Integer> x = N.decode(word[k]);
+                List<Integer> values = new ArrayList<Integer>(inputs.size());
+                for(int i = 0; i < inputs.size(); i++) {
+                    int p = N.label.indexOf(inputs.get(i)), j = M.label.indexOf(inputs.get(i));
+                    if(p != -1) values.add(x.get(p));
+                    else if(j != -1) values.add(M.A.get(j).get((antichain.wordChoices[k] / encoder.get(j)) % M.A.get(j).size()));
+                    else values.add(alphabets.get(i).get(0));
+                }
+                result.add(values);
             }
-            if(!flag){
-                newO.add(0);
-            }
+            return result;
         }
-        O = newO;
+        return null;
+    }
+
+    /**
+     * Determinizes the automaton given by table, starting from the set of states initial_state.
+     * Q and q0 are updated to the ones of the result, however d and O are left for the caller to update.
+     * @return the transition table of the resulting deterministic automaton. Its initial state is 0.
+     */
+    private TransitionTable subsetConstruction(TransitionTable table, HashSet<Integer> initial_state,boolean print, String prefix, StringBuffer log)throws Exception{
+        return subsetConstruction(table, initial_state, false, print, prefix, log);
+    }
+
+    /**
+     * Same as subsetConstruction(table,initial_state,...), but when reduce is true, table is first reduced as
+     * selected by setReduction. The result is then a different, but equivalent, deterministic automaton.
+     */
+    private TransitionTable subsetConstruction(TransitionTable table, HashSet<Integer> initial_state, boolean reduce, boolean print, String prefix, StringBuffer log)throws Exception{
+        int[] initial = new int[initial_state.size()];
+        int size = 0;
+        for(int q:initial_state) initial[size++] = q;
+        Arrays.sort(initial);
+        if(reduce && !reduction.equals("none") && !table.deterministic){
+            long timeBefore = System.currentTimeMillis();
+            Reduction reducer = new Reduction(table, initial);
+            reducer.trim();
+            reducer.bisimulation();
+            if(reduction.equals("simulation")) reducer.simulation();
+            long timeAfter = System.currentTimeMillis();
+            reducedStates.addAndGet(table.Q - reducer.table.Q);
+            reductionTime.addAndGet(timeAfter - timeBefore);
+            if(print){
+                String msg = prefix + "reduced by " + reduction + ":" + table.Q + " states to " + reducer.table.Q + " states - "+(timeAfter-timeBefore)+"ms";
+                log.append(msg + UtilityMethods.newLine());
+                System.out.println(msg);
+            }
+            table = reducer.table;
+            initial = reducer.initial;
+            Q = table.Q;
+        }
+        long timeBefore = System.currentTimeMillis();
+        if(print){
+            String msg = prefix + "determinizing:" + Q + " states";
+            log.append(msg + UtilityMethods.newLine());
+            System.out.println(msg);
+        }
+        SubsetConstruction construction = new SubsetConstruction(table);
+        TransitionTable result = parallelDeterminization ? construction.determinizeInParallel(initial) : construction.determinize(initial);
+        Q = result.Q;
+        q0 = 0;
         long timeAfter = System.currentTimeMillis();
+        if(reduce) reducibleDeterminizationTime.addAndGet(timeAfter - timeBefore);
         if(print){
             String msg = prefix + "determinized:" + Q + " states - "+(timeAfter-timeBefore)+"ms";
             log.append(msg + UtilityMethods.newLine());
             System.out.println(msg);
         }
+        return result;
     }
 
     private void fixLeadingZerosProblem(boolean print, String prefix,StringBuffer log)throws Exception{
@@ -2495,6 +3179,7 @@ public class Automaton {
             System.out.println(msg);
         }
         canonized = false;
+        unshare();
         List<Integer> ZERO = new ArrayList<Integer>();//all zero input
         for(List<Integer> i:A)ZERO.add(i.indexOf(0));
         int zero = encode(ZERO);
@@ -2503,11 +3188,21 @@ public class Automaton {
         }
         if(!d.get(q0).get(zero).contains(q0)){
             d.get(q0).get(zero).add(q0);
+            deterministic = false;
+            minimal = false;
         }
 
         HashSet<Integer> initial_state = zeroReachableStates();
-        subsetConstruction(initial_state,print,prefix+" ",log);
-        minimize(print, prefix+" ", log);
+        TransitionTable table = new TransitionTable(Q, d, O, alphabetSize);
+        if(keepNondeterministic(table)){
+            boolean[] initial = new boolean[Q];
+            for(int q:initial_state) initial[q] = true;
+            minimizeOrKeep(table.withInitialSet(initial), Q, print, prefix+" ", log);
+        }
+        else{
+            TransitionTable dfa = subsetConstruction(table,initial_state,true,print,prefix+" ",log);
+            minimize(dfa, q0, print, prefix+" ", log);
+        }
         long timeAfter = System.currentTimeMillis();
         if(print){
             String msg = prefix + "fixed leading zeros:" + Q + " states - "+(timeAfter-timeBefore)+"ms";
@@ -2528,6 +3223,7 @@ public class Automaton {
         newFinalStates = statesReachableToFinalStatesByZeros();
         List<Integer> ZERO = new ArrayList<Integer>();//all zero input
         for(List<Integer> i:A)ZERO.add(i.indexOf(0));
+        minimal = false;
         for(int q:newFinalStates){
             O.set(q, 1);
             /*if(!d.get(q).containsKey(zero)){
@@ -2537,7 +3233,7 @@ public class Automaton {
             }*/
         }
 
-        minimize(print,prefix+" ",log);
+        minimizeOrKeep(new TransitionTable(Q, d, O, alphabetSize), q0, print, prefix+" ", log);
 
         long timeAfter = System.currentTimeMillis();
         if(print){
@@ -2601,26 +3297,64 @@ public class Automaton {
     }
 
     /**
-     * For example, suppose that first = [1,2,3], second = [-1,4,2], and equalIndices = [-1,-1,1].
-     * Then the result is [1,2,3,-1,4].
-     * However if second = [-1,4,3] then the result is null
-     * because 3rd element of second is not equal two 2nd element of first.
-     * @param first
-     * @param second
-     * @param equalIndices
-     * @return
+     * Used in crossProduct. N must already have its alphabet set. The result is {joinThis, sharedThis, joinM, sharedM}:
+     * letter x of this and letter y of M agree on the inputs they share iff sharedThis[x] == sharedM[y], and then
+     * joinThis[x] + joinM[y] is the letter of N that joins them. The shared inputs are encoded in terms of
+     * the indices of their values in the alphabet of this.
+     * For example, suppose that x = [1,2,3], y = [-1,4,2], and the third input of M is the second input of this.
+     * Then the joined letter is [1,2,3,-1,4]. However if y = [-1,4,3] then there is no joined letter.
+     * The letters are never decoded: we only work with the digits of their mixed-radix encodings.
+     * @param sameInputsInMAndThis as in crossProduct
      */
-    private List<Integer> joinTwoInputsForCrossProduct(List<Integer> first,List<Integer> second,int[] equalIndices){
-        List<Integer> R = new ArrayList<Integer>();
-        R.addAll(first);
-        for(int i = 0 ; i < second.size();i++)
-            if(equalIndices[i] == -1)
-                R.add(second.get(i));
-            else{
-                if(!first.get(equalIndices[i]).equals(second.get(i)))
-                    return null;
+    private int[][] joinInputsForCrossProduct(Automaton M, Automaton N, int[] sameInputsInMAndThis){
+        int[] NStride = new int[N.A.size()];
+        for(int i = 0, size = 1; i < N.A.size();i++){
+            NStride[i] = size;
+            size *= N.A.get(i).size();
+        }
+        int[] joinThis = new int[alphabetSize], sharedThis = new int[alphabetSize];
+        int[] joinM = new int[M.alphabetSize], sharedM = new int[M.alphabetSize];
+        int[] digits = new int[A.size()];
+        for(int x = 0; x < alphabetSize;x++){
+            int n = x;
+            for(int i = 0; i < A.size();i++){
+                digits[i] = n % A.get(i).size();
+                n /= A.get(i).size();
+                joinThis[x] += digits[i] * NStride[i];
+            }
+            for(int i = 0, radix = 1; i < M.A.size();i++){
+                int j = sameInputsInMAndThis[i];
+                if(j != -1){
+                    sharedThis[x] += digits[j] * radix;
+                    radix *= A.get(j).size();
+                }
             }
-        return R;
+        }
+        /**indexInThis[i][k] is the index, in the alphabet of this, of the k-th value of shared input i of M*/
+        int[][] indexInThis = new int[M.A.size()][];
+        for(int i = 0; i < M.A.size();i++){
+            int j = sameInputsInMAndThis[i];
+            if(j != -1){
+                indexInThis[i] = new int[M.A.get(i).size()];
+                for(int k = 0; k < M.A.get(i).size();k++)
+                    indexInThis[i][k] = A.get(j).indexOf(M.A.get(i).get(k));
+            }
+        }
+        for(int y = 0; y < M.alphabetSize;y++){
+            int n = y;
+            for(int i = 0, radix = 1, position = A.size(); i < M.A.size();i++){
+                int digit = n % M.A.get(i).size();
+                n /= M.A.get(i).size();
+                if(sameInputsInMAndThis[i] == -1){
+                    joinM[y] += digit * NStride[position++];
+                }
+                else{
+                    sharedM[y] += indexInThis[i][digit] * radix;
+                    radix *= A.get(sameInputsInMAndThis[i]).size();
+                }
+            }
+        }
+        return new int[][]{joinThis, sharedThis, joinM, sharedM};
     }
 
     /**
@@ -2675,6 +3409,8 @@ public class Automaton {
             }
         }
         d = new_d;
+        deterministic = false;
+        minimal = false;
         I.remove(0);
         A = newAlphabet;
         UtilityMethods.removeIndices(NS,I);
@@ -0,0 +1,46 @@
+package Automata;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A cache of automata that many threads can use at once, such as the tables of constants and multiplications
+ * of NumberSystem. The automaton of a key is computed at most once: the first thread that asks for it computes it,
+ * and the threads that ask for it meanwhile wait for the result, instead of computing it again.<br>
+ * The cached automata are marked shared, and must not be changed. Callers take a view() of them before changing them.
+ * When a computation fails, its key is removed, so that the next request computes it again.
+ */
+class AutomatonTable<K> {
+	private final ConcurrentHashMap<K,FutureTask<Automaton>> table = new ConcurrentHashMap<K,FutureTask<Automaton>>();
+
+	/**
+	 * @return the cached automaton of key, which is computed by computation if it is not cached yet.
+	 * The computation can ask for other keys, but not for key itself.
+	 * @throws Exception the exception that computation threw
+	 */
+	Automaton get(K key, Callable<Automaton> computation) throws Exception {
+		FutureTask<Automaton> task = table.get(key);
+		if(task == null) {
+			FutureTask<Automaton> created = new FutureTask<Automaton>(() -> {
+				Automaton M = computation.call();
+				M.shared = true;
+				return M;
+			});
+			task = table.putIfAbsent(key, created);
+			if(task == null) {
+				task = created;
+				task.run();
+			}
+		}
+		try {
+			return task.get();
+		} catch(ExecutionException e) {
+			table.remove(key, task);
+			if(e.getCause() instanceof Exception) throw (Exception)e.getCause();
+			if(e.getCause() instanceof Error) throw (Error)e.getCause();
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package Automata;
+
+/**
+ * Brzozowski's minimization algorithm: reversing a deterministic automaton, all of whose states are reachable,
+ * and determinizing the result gives the minimal deterministic automaton of the reverse language. Doing this twice
+ * minimizes the automaton.<br>
+ * The first subset construction can blow up exponentially, so this engine is mostly useful on automata whose
+ * reverse is small. When the sets of states of the automaton of the reverse language get more than BLOWUP_FACTOR
+ * times as many members as the input has states and transitions (plus a few), we give up and minimize with
+ * Valmari's algorithm instead.
+ * Automaton.reverse uses the same theorem to skip the minimization of its result.
+ */
+class BrzozowskiMinimizer implements MinimizationEngine {
+	static final int BLOWUP_FACTOR = 4;
+
+	/* used when the reverse blows up */
+	ValmariMinimizer fallback;
+	int initial_state;
+
+	public TransitionTable minimize(TransitionTable dfa, int initial_state) {
+		this.initial_state = 0;
+		int[] outputs = new int[dfa.Q];
+		outputs[initial_state] = 1;
+		int numberOfFinalStates = 0;
+		for(int q = 0; q < dfa.Q; q++) {
+			if(dfa.O[q] != 0) numberOfFinalStates++;
+		}
+		if(numberOfFinalStates == 0) {
+			TransitionTable.Builder builder = new TransitionTable.Builder(dfa.alphabetSize);
+			builder.beginState(0);
+			return builder.build();
+		}
+		int[] finalStates = new int[numberOfFinalStates];
+		for(int q = 0, i = 0; q < dfa.Q; q++) {
+			if(dfa.O[q] != 0) finalStates[i++] = q;
+		}
+		TransitionTable reversed = new SubsetConstruction(dfa.reverse(outputs)).determinize(finalStates,
+			BLOWUP_FACTOR * ((long)dfa.Q + dfa.numberOfTransitions()) + 64);
+		if(reversed == null) {
+			if(fallback == null) fallback = new ValmariMinimizer();
+			TransitionTable result = fallback.minimize(dfa, initial_state);
+			this.initial_state = fallback.initialState();
+			return result;
+		}
+
+		/* reversed accepts the reverse language, and its initial state is 0 */
+		outputs = new int[reversed.Q];
+		outputs[0] = 1;
+		numberOfFinalStates = 0;
+		for(int q = 0; q < reversed.Q; q++) {
+			if(reversed.O[q] != 0) numberOfFinalStates++;
+		}
+		finalStates = new int[numberOfFinalStates];
+		for(int q = 0, i = 0; q < reversed.Q; q++) {
+			if(reversed.O[q] != 0) finalStates[i++] = q;
+		}
+		return new SubsetConstruction(reversed.reverse(outputs)).determinize(finalStates);
+	}
+
+	public int initialState() {
+		return initial_state;
+	}
+}
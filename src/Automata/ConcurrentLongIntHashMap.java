@@ -0,0 +1,147 @@
+package Automata;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A concurrent, insert-only version of LongIntHashMap, without boxing and without locks.<br>
+ * It is used to number the states of products that are explored in parallel, where a state is a pair of
+ * states packed into a long, so keys are never negative.<br>
+ * The map is split into stripes, chosen by the high bits of the hash of a key. Each stripe is an open-addressing
+ * table with linear probing: a thread claims an empty slot for a key by a compare-and-set on the key, and then
+ * writes its value. Slots never become empty again, so all the threads that insert the same key meet at the same slot.<br>
+ * When a stripe is half full, the thread that notices it moves the stripe to a table twice as large. It marks
+ * every empty slot of the old table as MOVED, so that no key can be added to it anymore, and copies the others.
+ * Threads that run into a MOVED slot, or find every slot taken, wait for the new table to be published, and then look there.
+ */
+class ConcurrentLongIntHashMap {
+	private static final long EMPTY = -1, MOVED = -2;
+
+	private static class Table {
+		final AtomicLongArray keys;
+		final AtomicIntegerArray values;
+		final int mask;
+		/**the number of keys in this table*/
+		final AtomicInteger size = new AtomicInteger();
+		/**set by the thread that moves this table to a larger one*/
+		final AtomicBoolean moving = new AtomicBoolean();
+
+		Table(int capacity) {
+			long[] k = new long[capacity];
+			int[] v = new int[capacity];
+			Arrays.fill(k, EMPTY);
+			Arrays.fill(v, -1);
+			keys = new AtomicLongArray(k);
+			values = new AtomicIntegerArray(v);
+			mask = capacity - 1;
+		}
+	}
+
+	private final AtomicReferenceArray<Table> stripes;
+	private final int stripeShift;
+
+	/**
+	 * @param expectedSize the number of keys we expect, used to size the stripes
+	 */
+	ConcurrentLongIntHashMap(int expectedSize) {
+		int numberOfStripes = 1;
+		while(numberOfStripes < 4 * Runtime.getRuntime().availableProcessors() && numberOfStripes < (1 << 10)) numberOfStripes <<= 1;
+		int capacity = 16;
+		while(capacity < 2L * expectedSize / numberOfStripes && capacity < (1 << 30)) capacity <<= 1;
+		stripes = new AtomicReferenceArray<Table>(numberOfStripes);
+		for(int i = 0; i < numberOfStripes; i++) stripes.set(i, new Table(capacity));
+		stripeShift = 64 - Integer.numberOfTrailingZeros(numberOfStripes);
+	}
+
+	private static long hash(long key) {
+		return key * 0x9E3779B97F4A7C15L;
+	}
+
+	private int stripeOf(long h) {
+		return stripeShift == 64 ? 0 : (int)(h >>> stripeShift);
+	}
+
+	private static int slot(long h, int mask) {
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+
+	/**
+	 * @return the value of key. If key is not in this map, it is added with the value counter.getAndIncrement(),
+	 * which is returned. Every key gets exactly one value, even when several threads add it at the same time.
+	 */
+	int getOrAdd(long key, AtomicInteger counter) {
+		long h = hash(key);
+		int stripe = stripeOf(h);
+		Table table = stripes.get(stripe);
+		int i = slot(h, table.mask), probes = 0;
+		while(true) {
+			if(probes > table.mask) {
+				// every slot is taken: the table is being moved, so we look again in the new one
+				table = newTableOf(stripe, table);
+				i = slot(h, table.mask);
+				probes = 0;
+				continue;
+			}
+			long k = table.keys.get(i);
+			if(k == key) return valueAt(table, i);
+			if(k == EMPTY && table.keys.compareAndSet(i, EMPTY, key)) {
+				int value = counter.getAndIncrement();
+				table.values.set(i, value);
+				if(2 * table.size.incrementAndGet() > table.keys.length() && table.moving.compareAndSet(false, true)) {
+					move(stripe, table);
+				}
+				return value;
+			}
+			k = table.keys.get(i);
+			if(k == key) return valueAt(table, i);
+			if(k == MOVED) {
+				table = newTableOf(stripe, table);
+				i = slot(h, table.mask);
+				probes = 0;
+				continue;
+			}
+			if(k != EMPTY) {
+				i = (i + 1) & table.mask;
+				probes++;
+			}
+		}
+	}
+
+	/**
+	 * @return the value in slot i, waiting for the thread that claimed the slot to write it.
+	 */
+	private static int valueAt(Table table, int i) {
+		int value;
+		while((value = table.values.get(i)) == -1) Thread.yield();
+		return value;
+	}
+
+	/**
+	 * @return the table that replaces old in the given stripe, waiting for it to be published.
+	 */
+	private Table newTableOf(int stripe, Table old) {
+		Table table;
+		while((table = stripes.get(stripe)) == old) Thread.yield();
+		return table;
+	}
+
+	private void move(int stripe, Table old) {
+		Table table = new Table(2 * old.keys.length());
+		for(int j = 0; j <= old.mask; j++) {
+			long k;
+			while((k = old.keys.get(j)) == EMPTY && !old.keys.compareAndSet(j, EMPTY, MOVED));
+			if(k == EMPTY) continue;
+			int value = valueAt(old, j);
+			int i = slot(hash(k), table.mask);
+			while(table.keys.get(i) != EMPTY) i = (i + 1) & table.mask;
+			table.keys.set(i, k);
+			table.values.set(i, value);
+			table.size.incrementAndGet();
+		}
+		stripes.set(stripe, table);
+	}
+}
@@ -0,0 +1,42 @@
+package Automata;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe version of SubsetIndex, used in SubsetConstruction.determinizeInParallel.<br>
+ * Sets are spread over a fixed number of stripes by their hash codes. Every stripe is a SubsetIndex of its own,
+ * guarded by its own lock, so threads adding sets to different stripes do not wait for each other.
+ * The numbers of the sets are taken from a shared counter, so they are unique across stripes.
+ */
+class ConcurrentSubsetIndex {
+	static final int STRIPES = 64;
+
+	private static class Stripe {
+		SubsetIndex subsets = new SubsetIndex();
+		/**id[i] is the number of the i-th set added to this stripe*/
+		int[] id = new int[16];
+	}
+
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	ConcurrentSubsetIndex() {
+		for(int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+	}
+
+	/**
+	 * @return the number of the set set[0],...,set[length-1] if it was already added. Otherwise the set is added
+	 * (and copied), it is numbered by counter, and we return ~(its number), which is negative.
+	 */
+	int add(int[] set, int length, AtomicInteger counter) {
+		Stripe stripe = stripes[(SubsetIndex.hash(set, length) >>> 26) & (STRIPES - 1)];
+		synchronized(stripe) {
+			int size = stripe.subsets.size;
+			int local = stripe.subsets.add(set, length);
+			if(local < size) return stripe.id[local];
+			if(local == stripe.id.length) stripe.id = Arrays.copyOf(stripe.id, 2 * local);
+			stripe.id[local] = counter.getAndIncrement();
+			return ~stripe.id[local];
+		}
+	}
+}
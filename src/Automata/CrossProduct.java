@@ -0,0 +1,338 @@
+package Automata;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Explores the reachable part of the cross product of two automata, given by their transition tables.
+ * It is used by Automaton.crossProduct, which takes care of labels and alphabets: the letters of the product
+ * are given by the join arrays computed in Automaton.joinInputsForCrossProduct.<br>
+ * The states of the product are numbered in the order they are discovered by a breadth-first search
+ * from (q0 of first,q0 of second), visiting edges of a state in order of discovery. explore() does this sequentially.
+ * exploreInParallel() expands every level of the search in parallel, and then renumbers the states so that
+ * the result is exactly the same as the one of explore().<br>
+ * For the logical operators, pairs from which the product cannot accept are never created, see isDead.
+ * When both operands are deterministic, so is the product, and it can go to minimization without being determinized again.
+ */
+class CrossProduct {
+	TransitionTable first, second;
+	/**
+	 * letter x of first and letter y of second agree on their shared inputs iff sharedFirst[x] == sharedSecond[y],
+	 * and then the letter of the product is joinFirst[x] + joinSecond[y].
+	 */
+	int[] joinFirst, sharedFirst, joinSecond;
+	/**
+	 * For every state q of second, indexOfSecond[rowStart[q]],...,indexOfSecond[rowStart[q+1]-1] holds
+	 * (sharedSecond[y] << 32 | e) for the edges e of q, sorted. So the edges of q that can be joined with
+	 * an edge of first reading x form a contiguous range, which we find by binary search for sharedFirst[x].
+	 */
+	long[] indexOfSecond;
+	int alphabetSize;
+	String op;
+	int combineOutput;
+	/**
+	 * dead[q] is true iff no final state is reachable from q, and full[q] is true iff every word is accepted from q.
+	 * They are only computed for the logical operators, and are used to recognize pairs from which no word is
+	 * accepted by the product. We never create such pairs: transitions to them are dropped.
+	 */
+	boolean[] deadFirst, fullFirst, deadSecond, fullSecond;
+
+	/**
+	 * @param join as returned by Automaton.joinInputsForCrossProduct
+	 * @param alphabetSize the size of the alphabet of the product
+	 * @param op the operator that determines the outputs of the product, as in Automaton.crossProduct
+	 * @param combineOutput only used when op = "combine"
+	 */
+	CrossProduct(TransitionTable first, TransitionTable second, int[][] join, int alphabetSize, String op, int combineOutput) {
+		this.first = first;
+		this.second = second;
+		this.joinFirst = join[0];
+		this.sharedFirst = join[1];
+		this.joinSecond = join[2];
+		this.alphabetSize = alphabetSize;
+		this.op = op;
+		this.combineOutput = combineOutput;
+		int[] sharedSecond = join[3];
+		indexOfSecond = new long[second.numberOfEdges()];
+		for(int e = 0; e < indexOfSecond.length; e++) {
+			indexOfSecond[e] = ((long)sharedSecond[second.letter[e]] << 32) | e;
+		}
+		for(int q = 0; q < second.Q; q++) {
+			Arrays.sort(indexOfSecond, second.rowStart[q], second.rowStart[q+1]);
+		}
+		switch(op) {
+		case "&":
+		case "|":
+			deadFirst = first.deadStates();
+			deadSecond = second.deadStates();
+			break;
+		case "^":
+		case "=>":
+		case "<=>":
+			deadFirst = first.deadStates();
+			deadSecond = second.deadStates();
+			fullFirst = first.fullStates();
+			fullSecond = second.fullStates();
+		}
+	}
+
+	/**
+	 * @return true if we know that no word is accepted from the pair (p,q) of the product.
+	 */
+	boolean isDead(int p, int q) {
+		if(deadFirst == null) return false;
+		switch(op) {
+		case "&":
+			return deadFirst[p] || deadSecond[q];
+		case "|":
+			return deadFirst[p] && deadSecond[q];
+		case "^":
+			return (deadFirst[p] && deadSecond[q]) || (fullFirst[p] && fullSecond[q]);
+		case "=>":
+			return fullFirst[p] && deadSecond[q];
+		case "<=>":
+			return (deadFirst[p] && fullSecond[q]) || (fullFirst[p] && deadSecond[q]);
+		}
+		return false;
+	}
+
+	int output(int p, int q) {
+		int a = first.O[p], b = second.O[q];
+		switch(op) {
+		case "&":
+			return (a != 0 && b != 0) ? 1 : 0;
+		case "|":
+			return (a != 0 || b != 0) ? 1 : 0;
+		case "^":
+			return ((a != 0 && b == 0) || (a == 0 && b != 0)) ? 1 : 0;
+		case "=>":
+			return (a == 0 || b != 0) ? 1 : 0;
+		case "<=>":
+			return ((a == 0 && b == 0) || (a != 0 && b != 0)) ? 1 : 0;
+		case "<":
+			return (a < b) ? 1 : 0;
+		case ">":
+			return (a > b) ? 1 : 0;
+		case "=":
+			return (a == b) ? 1 : 0;
+		case "!=":
+			return (a != b) ? 1 : 0;
+		case "<=":
+			return (a <= b) ? 1 : 0;
+		case ">=":
+			return (a >= b) ? 1 : 0;
+		case "combine":
+			return (b == 1) ? combineOutput : a;
+		}
+		return 0;
+	}
+
+	/**
+	 * The transitions of a single state of the product, in order of discovery:
+	 * edge k reads letter[k] and goes to the pairs dest[destStart[k]],...,dest[destStart[k+1]-1],
+	 * where the pair (p,q) is packed as p << 32 | q.
+	 */
+	static class Successors {
+		int edges = 0, size = 0;
+		int[] letter = new int[16], destStart = new int[17];
+		long[] dest = new long[16];
+		long[] order = new long[16];
+
+		/**
+		 * Adds the edges to the builder, sorted by their letters.
+		 * @param ids ids[i] is the state of the product for the pair dest[i]
+		 */
+		void addTo(TransitionTable.Builder builder, int[] ids) {
+			for(int i = 0; i < edges; i++) {
+				order[i] = ((long)letter[i] << 32) | i;
+			}
+			Arrays.sort(order, 0, edges);
+			for(int i = 0; i < edges; i++) {
+				int k = (int)order[i];
+				builder.addEdge(letter[k]);
+				for(int j = destStart[k]; j < destStart[k+1]; j++) {
+					builder.addTarget(ids[j]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the transitions of the state (p,q) of the product.
+	 */
+	void expand(int p, int q, Successors s) {
+		s.edges = 0;
+		s.size = 0;
+		for(int e1 = first.rowStart[p]; e1 < first.rowStart[p+1]; e1++) {
+			int x = first.letter[e1];
+			long key = sharedFirst[x];
+			int lo = second.rowStart[q], hi = second.rowStart[q+1];
+			while(lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if((indexOfSecond[mid] >>> 32) < key) lo = mid + 1;
+				else hi = mid;
+			}
+			for(int r = lo; r < second.rowStart[q+1] && (indexOfSecond[r] >>> 32) == key; r++) {
+				int e2 = (int)indexOfSecond[r];
+				if(s.edges == s.letter.length) {
+					s.letter = Arrays.copyOf(s.letter, 2 * s.edges);
+					s.order = Arrays.copyOf(s.order, 2 * s.edges);
+					s.destStart = Arrays.copyOf(s.destStart, 2 * s.edges + 1);
+				}
+				s.letter[s.edges] = joinFirst[x] + joinSecond[second.letter[e2]];
+				s.destStart[s.edges] = s.size;
+				for(int i = first.targetStart[e1]; i < first.targetStart[e1+1]; i++) {
+					for(int j = second.targetStart[e2]; j < second.targetStart[e2+1]; j++) {
+						if(isDead(first.targets[i], second.targets[j])) continue;
+						if(s.size == s.dest.length) s.dest = Arrays.copyOf(s.dest, 2 * s.size);
+						s.dest[s.size++] = ((long)first.targets[i] << 32) | second.targets[j];
+					}
+				}
+				if(s.destStart[s.edges] == s.size) continue;
+				s.edges++;
+				s.destStart[s.edges] = s.size;
+			}
+		}
+	}
+
+	/**
+	 * @return the reachable part of the product, starting from (p0,q0). The initial state of the result is 0.
+	 */
+	TransitionTable explore(int p0, int q0) {
+		TransitionTable.Builder builder = new TransitionTable.Builder(alphabetSize);
+		/**
+		 * State i of the product is the pair (statesOfFirst[i],statesOfSecond[i]). statesHash maps the pair (p,q),
+		 * packed as p << 32 | q, to its state.
+		 */
+		int[] statesOfFirst = new int[16], statesOfSecond = new int[16];
+		int numberOfStates = 0;
+		LongIntHashMap statesHash = new LongIntHashMap();
+		statesOfFirst[numberOfStates] = p0;
+		statesOfSecond[numberOfStates] = q0;
+		statesHash.put(((long)p0 << 32) | q0, numberOfStates++);
+		Successors s = new Successors();
+		int[] ids = new int[16];
+		for(int currentState = 0; currentState < numberOfStates; currentState++) {
+			int p = statesOfFirst[currentState];
+			int q = statesOfSecond[currentState];
+			builder.beginState(output(p, q));
+			expand(p, q, s);
+			if(ids.length < s.size) ids = new int[s.dest.length];
+			for(int i = 0; i < s.size; i++) {
+				int destination = statesHash.get(s.dest[i]);
+				if(destination == -1) {
+					if(numberOfStates == statesOfFirst.length) {
+						statesOfFirst = Arrays.copyOf(statesOfFirst, 2 * numberOfStates);
+						statesOfSecond = Arrays.copyOf(statesOfSecond, 2 * numberOfStates);
+					}
+					destination = numberOfStates;
+					statesOfFirst[numberOfStates] = (int)(s.dest[i] >>> 32);
+					statesOfSecond[numberOfStates] = (int)s.dest[i];
+					statesHash.put(s.dest[i], numberOfStates++);
+				}
+				ids[i] = destination;
+			}
+			s.addTo(builder, ids);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Same as explore(p0,q0), but the states of every level of the breadth-first search are expanded in parallel.
+	 * During the search, states get temporary ids from a ConcurrentLongIntHashMap, in whatever order threads reach them.
+	 * At the end we renumber the states by a sequential breadth-first search over the recorded transitions, which
+	 * visits edges in the same order as explore(), so both methods return the same table.
+	 */
+	TransitionTable exploreInParallel(int p0, int q0) {
+		ConcurrentLongIntHashMap statesHash = new ConcurrentLongIntHashMap(Math.max(first.Q, second.Q));
+		AtomicInteger numberOfStates = new AtomicInteger();
+		/**pairOf[i] is the pair of temporary state i, and the transitions of temporary state i are recorded in
+		 * letters[i], destStarts[i] and dests[i], in the same format as in Successors, with dests holding temporary ids*/
+		long[] pairOf = new long[16];
+		int[][] letters = new int[16][], destStarts = new int[16][], dests = new int[16][];
+		long initial = ((long)p0 << 32) | q0;
+		statesHash.getOrAdd(initial, numberOfStates);
+		pairOf[0] = initial;
+		int levelBegin = 0, levelEnd = 1;
+		int chunks = 4 * Runtime.getRuntime().availableProcessors();
+		while(levelBegin < levelEnd) {
+			if(letters.length < levelEnd) {
+				int length = Math.max(2 * letters.length, levelEnd);
+				letters = Arrays.copyOf(letters, length);
+				destStarts = Arrays.copyOf(destStarts, length);
+				dests = Arrays.copyOf(dests, length);
+			}
+			final int begin = levelBegin, end = levelEnd, chunkSize = Math.max(1, (end - begin + chunks - 1) / chunks);
+			final long[] pairs = pairOf;
+			final int[][] levelLetters = letters, levelDestStarts = destStarts, levelDests = dests;
+			/**created[chunk] holds (id,pair) for the states of the next level that were reached in the chunk*/
+			long[][] created = new long[(end - begin + chunkSize - 1) / chunkSize][];
+			IntStream.range(0, created.length).parallel().forEach(chunk -> {
+				Successors s = new Successors();
+				long[] newStates = new long[16];
+				int size = 0;
+				for(int state = begin + chunk * chunkSize; state < Math.min(end, begin + (chunk + 1) * chunkSize); state++) {
+					expand((int)(pairs[state] >>> 32), (int)pairs[state], s);
+					int[] ids = new int[s.size];
+					for(int i = 0; i < s.size; i++) {
+						int id = statesHash.getOrAdd(s.dest[i], numberOfStates);
+						if(id >= end) {
+							if(size + 2 > newStates.length) newStates = Arrays.copyOf(newStates, 2 * newStates.length);
+							newStates[size++] = id;
+							newStates[size++] = s.dest[i];
+						}
+						ids[i] = id;
+					}
+					levelLetters[state] = Arrays.copyOf(s.letter, s.edges);
+					levelDestStarts[state] = Arrays.copyOf(s.destStart, s.edges + 1);
+					levelDests[state] = ids;
+				}
+				created[chunk] = Arrays.copyOf(newStates, size);
+			});
+			int total = numberOfStates.get();
+			if(pairOf.length < total) pairOf = Arrays.copyOf(pairOf, Math.max(2 * pairOf.length, total));
+			for(long[] newStates:created) {
+				for(int i = 0; i < newStates.length; i += 2) {
+					pairOf[(int)newStates[i]] = newStates[i+1];
+				}
+			}
+			levelBegin = levelEnd;
+			levelEnd = total;
+		}
+		return renumber(numberOfStates.get(), pairOf, letters, destStarts, dests);
+	}
+
+	/**
+	 * Used in exploreInParallel to number the states in the same order as explore().
+	 */
+	private TransitionTable renumber(int n, long[] pairOf, int[][] letters, int[][] destStarts, int[][] dests) {
+		/**newId[t] is the state of the result for temporary state t, and state i of the result is temporary state order[i]*/
+		int[] newId = new int[n], order = new int[n];
+		Arrays.fill(newId, -1);
+		int numberOfStates = 0;
+		newId[0] = numberOfStates;
+		order[numberOfStates++] = 0;
+		TransitionTable.Builder builder = new TransitionTable.Builder(alphabetSize);
+		Successors s = new Successors();
+		for(int currentState = 0; currentState < numberOfStates; currentState++) {
+			int t = order[currentState];
+			builder.beginState(output((int)(pairOf[t] >>> 32), (int)pairOf[t]));
+			int[] ids = new int[dests[t].length];
+			for(int i = 0; i < ids.length; i++) {
+				int destination = dests[t][i];
+				if(newId[destination] == -1) {
+					newId[destination] = numberOfStates;
+					order[numberOfStates++] = destination;
+				}
+				ids[i] = newId[destination];
+			}
+			s.letter = letters[t];
+			s.destStart = destStarts[t];
+			s.edges = letters[t].length;
+			if(s.order.length < s.edges) s.order = new long[s.edges];
+			s.addTo(builder, ids);
+		}
+		return builder.build();
+	}
+}
@@ -0,0 +1,98 @@
+package Automata;
+
+import java.util.Arrays;
+
+/**
+ * Decides whether two deterministic automata accept the same language, with the algorithm of Hopcroft and Karp.
+ * Pairs of states that have to be equivalent are merged in a union-find structure, and only pairs that were not
+ * already merged are explored, so the check takes almost linear time in the size of the two automata. It stops at the
+ * first pair of states where one is final and the other is not, and returns the word that leads to this pair.<br>
+ * Missing transitions go to a non-final sink state, which is state Q of each automaton. Letters are compared as
+ * encoded integers, so both automata should use the same encoding of their inputs.
+ */
+class Equivalence {
+	TransitionTable first, second;
+	/**the union-find structure: states of first are 0,...,first.Q, and states of second are first.Q+1,...*/
+	int[] parent;
+	/**the pairs to explore, and for every pair, the pair it was reached from and the letter it was reached by*/
+	int[] left = new int[16], right = new int[16], from = new int[16], letter = new int[16];
+	int size = 0;
+
+	Equivalence(TransitionTable first, TransitionTable second) {
+		this.first = first;
+		this.second = second;
+		parent = new int[first.Q + second.Q + 2];
+		for(int i = 0; i < parent.length; i++) parent[i] = i;
+	}
+
+	private int find(int i) {
+		while(parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	/**
+	 * Merges the classes of p in first and q in second, and adds (p,q) to the pairs to explore if they were different.
+	 */
+	private void merge(int p, int q, int previous, int x) {
+		int a = find(p), b = find(first.Q + 1 + q);
+		if(a == b) return;
+		parent[a] = b;
+		if(size == left.length) {
+			left = Arrays.copyOf(left, 2 * size);
+			right = Arrays.copyOf(right, 2 * size);
+			from = Arrays.copyOf(from, 2 * size);
+			letter = Arrays.copyOf(letter, 2 * size);
+		}
+		left[size] = p;
+		right[size] = q;
+		from[size] = previous;
+		letter[size++] = x;
+	}
+
+	private static boolean isFinal(TransitionTable table, int q) {
+		return q < table.Q && table.O[q] != 0;
+	}
+
+	/**
+	 * @return the destination of edge e of table, or the sink state when e is -1.
+	 */
+	private static int successor(TransitionTable table, int e) {
+		if(e == -1 || table.targetStart[e] == table.targetStart[e+1]) return table.Q;
+		return table.targets[table.targetStart[e]];
+	}
+
+	/**
+	 * @return a word that is accepted from exactly one of the initial states, as a sequence of encoded letters,
+	 * or null when both initial states accept the same language.
+	 */
+	int[] distinguishingWord(int firstInitial, int secondInitial) {
+		merge(firstInitial, secondInitial, -1, 0);
+		for(int current = 0; current < size; current++) {
+			int p = left[current], q = right[current];
+			if(isFinal(first, p) != isFinal(second, q)) return word(current);
+			/**we go through the edges of p and q together, in increasing order of letters*/
+			int e = p < first.Q ? first.rowStart[p] : 0, eEnd = p < first.Q ? first.rowStart[p+1] : 0;
+			int f = q < second.Q ? second.rowStart[q] : 0, fEnd = q < second.Q ? second.rowStart[q+1] : 0;
+			while(e < eEnd || f < fEnd) {
+				int x = e < eEnd ? first.letter[e] : Integer.MAX_VALUE;
+				int y = f < fEnd ? second.letter[f] : Integer.MAX_VALUE;
+				int in = Math.min(x, y);
+				merge(successor(first, x == in ? e : -1), successor(second, y == in ? f : -1), current, in);
+				if(x == in) e++;
+				if(y == in) f++;
+			}
+		}
+		return null;
+	}
+
+	private int[] word(int pair) {
+		int length = 0;
+		for(int i = pair; from[i] != -1; i = from[i]) length++;
+		int[] result = new int[length];
+		for(int i = pair; from[i] != -1; i = from[i]) result[--length] = letter[i];
+		return result;
+	}
+}
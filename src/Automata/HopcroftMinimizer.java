@@ -0,0 +1,150 @@
+package Automata;
+
+import java.util.Arrays;
+
+/**
+ * Hopcroft's minimization algorithm for deterministic automata, in the form that also works on incomplete automata
+ * (A. Valmari and P. Lehtinen, "Efficient minimization of DFAs with partial transition functions"): both blocks of
+ * the initial partition are splitters, and whenever a block is split, the smaller half becomes a splitter.<br>
+ * Unlike ValmariMinimizer, it does not keep a partition of the transitions. Instead, for every splitter it sorts the
+ * transitions into the splitter by label, which costs a logarithmic factor on the number of transitions into
+ * the splitter, but is cheap on automata with few transitions per state.<br>
+ * Like ValmariMinimizer, an instance can be reused, and different instances can run at the same time.
+ */
+class HopcroftMinimizer implements MinimizationEngine {
+	// blocks (consist of states)
+	Partition B = new Partition();
+
+	// number of states
+	int num_states;
+	// number of transitions
+	int num_transitions;
+	// number of final states
+	int num_finalstates;
+
+	/* the transitions into q are (_L[j], _T[j]) for _F[q] <= j < _F[q+1], as (label, tail) */
+	int[] _F = new int[0], _T = new int[0], _L = new int[0];
+
+	/* the blocks that are waiting to be used as splitters */
+	int[] splitters = new int[0];
+	/* buffer for the transitions into a splitter, as (label << 32 | tail) */
+	long[] keys = new long[0];
+
+	/* the initial state of the result of minimize */
+	int initial_state;
+
+	/* Removal of irrelevant parts */
+	int rr = 0;   // number of reached states
+
+	void reach( int q ){
+		int i = B.L[q];
+		if( i >= rr ){
+			B.E[i] = B.E[rr]; B.L[B.E[i]] = i;
+			B.E[rr] = q; B.L[q] = rr++;
+		}
+	}
+
+	public TransitionTable minimize( TransitionTable dfa, int q0 ){
+		num_states = dfa.Q;
+		num_transitions = dfa.numberOfTransitions();
+		if( _T.length < num_transitions ){
+			_T = new int[num_transitions];
+			_L = new int[num_transitions];
+			keys = new long[num_transitions];
+		}
+		if( _F.length < num_states+1 ){
+			_F = new int[num_states+1];
+			splitters = new int[num_states+1];
+		}
+
+		/* Reverse the transitions */
+		Arrays.fill( _F, 0, num_states+1, 0 );
+		for( int i = 0; i < num_transitions; ++i ){
+			++_F[dfa.targets[i]+1];
+		}
+		for( int q = 0; q < num_states; ++q ){
+			_F[q+1] += _F[q];
+		}
+		for( int q = 0; q < num_states; ++q ){
+			for( int e = dfa.rowStart[q]; e < dfa.rowStart[q+1]; e++ ){
+				for( int i = dfa.targetStart[e]; i < dfa.targetStart[e+1]; i++ ){
+					int j = _F[dfa.targets[i]]++;
+					_T[j] = q; _L[j] = dfa.letter[e];
+				}
+			}
+		}
+		for( int q = num_states; q > 0; --q ){
+			_F[q] = _F[q-1];
+		}
+		if( num_states != 0 ) _F[0] = 0;
+
+		/* Keep the states from which a final state is reachable: B.E[0],...,B.E[relevant-1] */
+		B.init( num_states );
+		rr = 0;
+		for( int q = 0; q < num_states; ++q ){
+			if( dfa.O[q] != 0 ){
+				reach( q );
+			}
+		}
+		num_finalstates = rr;
+		for( int i = 0; i < rr; ++i ){
+			for( int j = _F[B.E[i]]; j < _F[B.E[i]+1]; ++j ){
+				reach( _T[j] );
+			}
+		}
+		int relevant = rr;
+		if( B.z != 0 ) B.P[0] = relevant;
+
+		/* Make initial partition, and use all of its blocks as splitters */
+		B.M[0] = num_finalstates;
+		if( num_finalstates != 0 ){ B.W[B.w++] = 0; B.split(); }
+		int top = 0;
+		for( int b = 0; b < B.z; ++b ){
+			splitters[top++] = b;
+		}
+
+		/* Split blocks: the new block made by Partition.split is always the smaller half */
+		while( top > 0 ){
+			int s = splitters[--top], k = 0;
+			for( int i = B.F[s]; i < B.P[s]; ++i ){
+				int q = B.E[i];
+				for( int j = _F[q]; j < _F[q+1]; ++j ){
+					keys[k++] = ((long)_L[j] << 32) | _T[j];
+				}
+			}
+			Arrays.sort( keys, 0, k );
+			for( int i = 0; i < k; ){
+				int a = (int)(keys[i] >>> 32);
+				for( ; i < k && (int)(keys[i] >>> 32) == a; ++i ){
+					B.mark( (int)keys[i] );
+				}
+				int z = B.z;
+				B.split();
+				for( int b = z; b < B.z; ++b ){
+					splitters[top++] = b;
+				}
+			}
+		}
+
+		/* Build the minimized automaton: block q behaves like its first state B.E[B.F[q]] */
+		TransitionTable.Builder builder = new TransitionTable.Builder( dfa.alphabetSize );
+		for( int q = 0; q < B.z; ++q ){
+			builder.beginState( B.F[q] < num_finalstates ? 1 : 0 );
+			if( B.F[q] == B.P[q] ) continue;
+			int r = B.E[B.F[q]];
+			for( int e = dfa.rowStart[r]; e < dfa.rowStart[r+1]; e++ ){
+				if( dfa.targetStart[e] == dfa.targetStart[e+1] ) continue;
+				int p = dfa.targets[dfa.targetStart[e]];
+				if( B.L[p] >= relevant ) continue;
+				builder.addEdge( dfa.letter[e] );
+				builder.addTarget( B.S[p] );
+			}
+		}
+		initial_state = B.S[q0];
+		return builder.build();
+	}
+
+	public int initialState(){
+		return initial_state;
+	}
+}
@@ -0,0 +1,79 @@
+package Automata;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from long keys to non-negative int values, without boxing.<br>
+ * It is used to number the states of products, where a state is a pair of states packed into a long.
+ */
+class LongIntHashMap {
+	long[] keys;
+	int[] values;
+	int size;
+	int mask;
+
+	LongIntHashMap() {
+		this(16);
+	}
+
+	LongIntHashMap(int expectedSize) {
+		int capacity = 16;
+		while(capacity < 2L * expectedSize && capacity < (1 << 30)) capacity <<= 1;
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, -1);
+		mask = capacity - 1;
+	}
+
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+
+	/**
+	 * @return the value of key, or -1 if key is not in this map.
+	 */
+	int get(long key) {
+		for(int i = slot(key); values[i] != -1; i = (i + 1) & mask) {
+			if(keys[i] == key) return values[i];
+		}
+		return -1;
+	}
+
+	/**
+	 * Maps key to value. The value must be non-negative.
+	 */
+	void put(long key, int value) {
+		int i = slot(key);
+		while(values[i] != -1) {
+			if(keys[i] == key) {
+				values[i] = value;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		if(++size * 2 > keys.length) grow();
+	}
+
+	int size() {
+		return size;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[2 * oldKeys.length];
+		values = new int[2 * oldValues.length];
+		Arrays.fill(values, -1);
+		mask = keys.length - 1;
+		for(int j = 0; j < oldKeys.length; j++) {
+			if(oldValues[j] == -1) continue;
+			int i = slot(oldKeys[j]);
+			while(values[i] != -1) i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			values[i] = oldValues[j];
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package Automata;
+
+/**
+ * An algorithm that minimizes deterministic automata given by their transition tables. Automaton.minimize uses the
+ * engine selected by Automaton.setMinimizationEngine.<br>
+ * All engines compute the same automaton, up to the numbering of its states: the minimal deterministic automaton of
+ * the language, without the states from which no final state is reachable. When the language is empty, this is a
+ * single non-final state without transitions. Outputs other than 0 are treated as 1.<br>
+ * An engine may keep buffers between calls, so an instance should only be used by one thread at a time.
+ */
+interface MinimizationEngine {
+	/**
+	 * @param dfa a deterministic transition table, all of whose states are reachable from initial_state
+	 * @return the minimal automaton. Its initial state is given by initialState().
+	 */
+	TransitionTable minimize(TransitionTable dfa, int initial_state);
+
+	/**
+	 * @return the initial state of the automaton returned by the last call to minimize.
+	 */
+	int initialState();
+}
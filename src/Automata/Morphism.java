@@ -18,6 +18,7 @@
 
 package Automata;
 
+import Main.Predicate;
 import Main.UtilityMethods;
 
 import java.io.PrintWriter;
@@ -101,6 +102,7 @@ public class Morphism {
         Automaton promotion = new Automaton();
         List<Integer> alphabet = IntStream.rangeClosed(0, maxImageLength-1).boxed().collect(Collectors.toList());
         promotion.A.add(alphabet);
+        promotion.alphabetSize = alphabet.size();
         int maxEntry = 0;
         for (int x : mapping.keySet()) {
             for (int y : mapping.get(x)) {
@@ -124,7 +126,7 @@ public class Morphism {
         // this word automaton is purely symbolic in input and we want it in the exact order given
         promotion.canonized = true;
         // the base for the automata is the length of the longest image of any letter under the morphism
-        promotion.NS.add(new NumberSystem("msd_" + maxImageLength.toString()));
+        promotion.NS.add(Predicate.get_number_system("msd_" + maxImageLength.toString()));
 
         return promotion;
     }
@@ -0,0 +1,346 @@
+package Automata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import Main.UtilityMethods;
+
+/**
+ * The simultaneous product of k automata, used by Automaton.and(List) and Automaton.or(List).<br>
+ * Instead of computing k-1 binary products, and minimizing each of them, we explore the k-tuples of states
+ * that are reachable in all the automata at once. The letters are joined one automaton at a time: the letter read
+ * by automaton i must agree with the letters chosen for automata 0,...,i-1 on the inputs they share, in the same
+ * way as in CrossProduct.
+ */
+class MultiProduct {
+	int k;
+	TransitionTable[] tables;
+	String op;
+	int alphabetSize;
+	/**
+	 * join[i][y] is the part of the letter of the product that comes from the new inputs of automaton i when it reads y,
+	 * i.e., the inputs that do not appear in automata 0,...,i-1. shared[i][y] encodes the values of the other inputs
+	 * of automaton i, in terms of the indices of their values in the alphabet of the product.
+	 */
+	int[][] join, shared;
+	/**
+	 * For the j-th shared input of automaton i, sharedStride[i][j] is its stride in the encoding of the product,
+	 * sharedSize[i][j] is its size, and sharedRadix[i][j] is its weight in shared[i][y].
+	 * So the key automaton i has to match, after a partial letter z was chosen, is
+	 * sum over j of ((z / sharedStride[i][j]) % sharedSize[i][j]) * sharedRadix[i][j].
+	 */
+	int[][] sharedStride, sharedSize, sharedRadix;
+	/**
+	 * As in CrossProduct.indexOfSecond: the edges of every state of automaton i, sorted by (shared[i][letter] << 32 | edge).
+	 */
+	long[][] index;
+	/**
+	 * dead[i][q] is true iff no final state of automaton i is reachable from q.
+	 */
+	boolean[][] dead;
+
+	/**
+	 * Sets the alphabet, labels and number systems of N to the ones of the product of automata.
+	 * @param op "&" or "|"
+	 */
+	MultiProduct(List<Automaton> automata, Automaton N, String op) throws Exception {
+		this.k = automata.size();
+		this.op = op;
+		/**position[i][j] is the index of input j of automaton i among the inputs of N*/
+		int[][] position = new int[k][];
+		for(int i = 0; i < k; i++) {
+			Automaton M = automata.get(i);
+			position[i] = new int[M.A.size()];
+			for(int j = 0; j < M.A.size(); j++) {
+				int p = N.label.indexOf(M.label.get(j));
+				if(p == -1) {
+					p = N.A.size();
+					N.A.add(new ArrayList<Integer>(M.A.get(j)));
+					N.label.add(M.label.get(j));
+					N.NS.add(M.NS.get(j));
+				}
+				else {
+					if(!UtilityMethods.areEqual(N.A.get(p), M.A.get(j))) {
+						throw new Exception("in computing cross product of two automaton, variables with the same label must have the same alphabet");
+					}
+					if(M.NS.get(j) != null && N.NS.get(p) == null)
+						N.NS.set(p, M.NS.get(j));
+				}
+				position[i][j] = p;
+			}
+		}
+		N.alphabetSize = 1;
+		for(List<Integer> x:N.A)
+			N.alphabetSize *= x.size();
+		alphabetSize = N.alphabetSize;
+		int[] NStride = new int[N.A.size()];
+		for(int i = 0, size = 1; i < N.A.size(); i++) {
+			NStride[i] = size;
+			size *= N.A.get(i).size();
+		}
+
+		tables = new TransitionTable[k];
+		join = new int[k][];
+		shared = new int[k][];
+		sharedStride = new int[k][];
+		sharedSize = new int[k][];
+		sharedRadix = new int[k][];
+		index = new long[k][];
+		dead = new boolean[k][];
+		/**the inputs of N that appear in automata 0,...,i-1*/
+		boolean[] seen = new boolean[N.A.size()];
+		for(int i = 0; i < k; i++) {
+			Automaton M = automata.get(i);
+			tables[i] = new TransitionTable(M.Q, M.d, M.O, M.alphabetSize);
+			dead[i] = tables[i].deadStates();
+			/**the inputs of M that are shared with automata 0,...,i-1, and the indices of their values in N*/
+			List<Integer> sharedInputs = new ArrayList<Integer>();
+			int[][] indexInN = new int[M.A.size()][];
+			for(int j = 0; j < M.A.size(); j++) {
+				if(seen[position[i][j]]) {
+					sharedInputs.add(j);
+					indexInN[j] = new int[M.A.get(j).size()];
+					for(int v = 0; v < M.A.get(j).size(); v++)
+						indexInN[j][v] = N.A.get(position[i][j]).indexOf(M.A.get(j).get(v));
+				}
+			}
+			sharedStride[i] = new int[sharedInputs.size()];
+			sharedSize[i] = new int[sharedInputs.size()];
+			sharedRadix[i] = new int[sharedInputs.size()];
+			for(int j = 0, radix = 1; j < sharedInputs.size(); j++) {
+				int p = position[i][sharedInputs.get(j)];
+				sharedStride[i][j] = NStride[p];
+				sharedSize[i][j] = N.A.get(p).size();
+				sharedRadix[i][j] = radix;
+				radix *= N.A.get(p).size();
+			}
+			join[i] = new int[M.alphabetSize];
+			shared[i] = new int[M.alphabetSize];
+			for(int y = 0; y < M.alphabetSize; y++) {
+				int n = y;
+				for(int j = 0, s = 0; j < M.A.size(); j++) {
+					int digit = n % M.A.get(j).size();
+					n /= M.A.get(j).size();
+					if(indexInN[j] == null) {
+						join[i][y] += digit * NStride[position[i][j]];
+					}
+					else {
+						shared[i][y] += indexInN[j][digit] * sharedRadix[i][s++];
+					}
+				}
+			}
+			TransitionTable table = tables[i];
+			index[i] = new long[table.numberOfEdges()];
+			for(int e = 0; e < index[i].length; e++) {
+				index[i][e] = ((long)shared[i][table.letter[e]] << 32) | e;
+			}
+			for(int q = 0; q < table.Q; q++) {
+				Arrays.sort(index[i], table.rowStart[q], table.rowStart[q+1]);
+			}
+			for(int j = 0; j < M.A.size(); j++) seen[position[i][j]] = true;
+		}
+	}
+
+	/**
+	 * @return true if we know that no word is accepted from the tuple of states t.
+	 */
+	boolean isDead(int[] t) {
+		for(int i = 0; i < k; i++) {
+			if(op.equals("&") && dead[i][t[i]]) return true;
+			if(op.equals("|") && !dead[i][t[i]]) return false;
+		}
+		return op.equals("|");
+	}
+
+	int output(int[] t) {
+		for(int i = 0; i < k; i++) {
+			if(op.equals("&") && tables[i].O[t[i]] == 0) return 0;
+			if(op.equals("|") && tables[i].O[t[i]] != 0) return 1;
+		}
+		return op.equals("&") ? 1 : 0;
+	}
+
+	/**
+	 * State i of the product is the tuple states[i*k],...,states[i*k+k-1].
+	 * A tuple is numbered by hash-consing its prefixes: prefix[j] maps (id of t[0..j-1] << 32 | t[j]) to the id of t[0..j],
+	 * where the id of t[0..0] is t[0]. prefix[k-1] gives the states of the product.
+	 */
+	int[] states;
+	int numberOfStates;
+	LongIntHashMap[] prefix;
+	int[] prefixCount;
+
+	/**
+	 * @return the state of the product for the tuple t. New states are added to the end of states.
+	 */
+	private int stateOf(int[] t) {
+		if(k == 1) return register(t, prefix[0], t[0]);
+		long id = t[0];
+		for(int j = 1; j < k - 1; j++) {
+			long key = (id << 32) | t[j];
+			int value = prefix[j].get(key);
+			if(value == -1) {
+				value = prefixCount[j]++;
+				prefix[j].put(key, value);
+			}
+			id = value;
+		}
+		return register(t, prefix[k-1], (id << 32) | t[k-1]);
+	}
+
+	private int register(int[] t, LongIntHashMap map, long key) {
+		int value = map.get(key);
+		if(value == -1) {
+			value = numberOfStates++;
+			map.put(key, value);
+			if(states.length < numberOfStates * k) states = Arrays.copyOf(states, 2 * numberOfStates * k);
+			System.arraycopy(t, 0, states, value * k, k);
+		}
+		return value;
+	}
+
+	/** the transitions of the current state, collected in expand: edge m reads letters[m] and goes to the
+	 * states destinations[destStart[m]],...,destinations[destStart[m+1]-1] */
+	int edges, size;
+	int[] letters = new int[16], destStart = new int[17], destinations = new int[16];
+	long[] order = new long[16];
+
+	/**
+	 * Explores the reachable part of the product, starting from the tuple of initial states.
+	 * @return the product. Its initial state is 0.
+	 */
+	TransitionTable explore(int[] initial) {
+		start(initial);
+		TransitionTable.Builder builder = new TransitionTable.Builder(alphabetSize);
+		int[] current = new int[k];
+		int[] edge = new int[k];
+		for(int s = 0; s < numberOfStates; s++) {
+			System.arraycopy(states, s * k, current, 0, k);
+			builder.beginState(output(current));
+			edges = 0;
+			size = 0;
+			if(!isDead(current)) expand(current, edge, 0, 0);
+			for(int m = 0; m < edges; m++) order[m] = ((long)letters[m] << 32) | m;
+			Arrays.sort(order, 0, edges);
+			for(int m = 0; m < edges; m++) {
+				int l = (int)order[m];
+				builder.addEdge(letters[l]);
+				for(int j = destStart[l]; j < destStart[l+1]; j++) builder.addTarget(destinations[j]);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Explores the product in breadth-first order, without building its transition table, and stops at the first
+	 * state whose output is 1.
+	 * @return a shortest word that takes the tuple of initial states to such a state, as a sequence of encoded letters
+	 * of the product, or null if there is none.
+	 */
+	int[] acceptedWord(int[] initial) {
+		start(initial);
+		/**state s of the product was first reached from state from[s] by the letter by[s]*/
+		int[] from = new int[16], by = new int[16];
+		from[0] = -1;
+		int reached = 1;
+		int[] current = new int[k];
+		int[] edge = new int[k];
+		for(int s = 0; s < numberOfStates; s++) {
+			System.arraycopy(states, s * k, current, 0, k);
+			if(output(current) == 1) {
+				int length = 0;
+				for(int p = s; from[p] != -1; p = from[p]) length++;
+				int[] word = new int[length];
+				for(int p = s; from[p] != -1; p = from[p]) word[--length] = by[p];
+				return word;
+			}
+			edges = 0;
+			size = 0;
+			if(!isDead(current)) expand(current, edge, 0, 0);
+			/**new states are numbered in the order in which they appear among the destinations*/
+			for(int m = 0; m < edges; m++) {
+				for(int j = destStart[m]; j < destStart[m+1]; j++) {
+					if(destinations[j] != reached) continue;
+					if(reached == from.length) {
+						from = Arrays.copyOf(from, 2 * reached);
+						by = Arrays.copyOf(by, 2 * reached);
+					}
+					from[reached] = s;
+					by[reached++] = letters[m];
+				}
+			}
+		}
+		return null;
+	}
+
+	private void start(int[] initial) {
+		states = new int[16 * k];
+		numberOfStates = 0;
+		prefix = new LongIntHashMap[k];
+		prefixCount = new int[k];
+		for(int j = 0; j < k; j++) prefix[j] = new LongIntHashMap();
+		stateOf(initial);
+	}
+
+	/**
+	 * Chooses an edge of automaton i from current[i] that agrees with the partial letter z of automata 0,...,i-1.
+	 */
+	private void expand(int[] current, int[] edge, int i, int z) {
+		if(i == k) {
+			addEdge(current, edge, z);
+			return;
+		}
+		TransitionTable table = tables[i];
+		int q = current[i];
+		long key = 0;
+		for(int j = 0; j < sharedStride[i].length; j++) {
+			key += ((z / sharedStride[i][j]) % sharedSize[i][j]) * sharedRadix[i][j];
+		}
+		int lo = table.rowStart[q], hi = table.rowStart[q+1];
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if((index[i][mid] >>> 32) < key) lo = mid + 1;
+			else hi = mid;
+		}
+		for(int r = lo; r < table.rowStart[q+1] && (index[i][r] >>> 32) == key; r++) {
+			int e = (int)index[i][r];
+			if(table.targetStart[e] == table.targetStart[e+1]) continue;
+			edge[i] = e;
+			expand(current, edge, i + 1, z + join[i][table.letter[e]]);
+		}
+	}
+
+	/**
+	 * Adds the transition on letter z, where automaton i follows edge[i]. When some of the automata are
+	 * non-deterministic, the destinations are all the combinations of their destinations.
+	 */
+	private void addEdge(int[] current, int[] edge, int z) {
+		if(edges == letters.length) {
+			letters = Arrays.copyOf(letters, 2 * edges);
+			order = Arrays.copyOf(order, 2 * edges);
+			destStart = Arrays.copyOf(destStart, 2 * edges + 1);
+		}
+		letters[edges] = z;
+		destStart[edges] = size;
+		int[] t = new int[k];
+		int[] choice = new int[k];
+		for(int i = 0; i < k; i++) choice[i] = tables[i].targetStart[edge[i]];
+		while(true) {
+			for(int i = 0; i < k; i++) t[i] = tables[i].targets[choice[i]];
+			if(!isDead(t)) {
+				if(size == destinations.length) destinations = Arrays.copyOf(destinations, 2 * size);
+				destinations[size++] = stateOf(t);
+			}
+			int i = k - 1;
+			while(i >= 0 && ++choice[i] == tables[i].targetStart[edge[i]+1]) {
+				choice[i] = tables[i].targetStart[edge[i]];
+				i--;
+			}
+			if(i < 0) break;
+		}
+		if(destStart[edges] == size) return;
+		edges++;
+		destStart[edges] = size;
+	}
+}
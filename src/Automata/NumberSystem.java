@@ -19,6 +19,12 @@
 package Automata;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -87,18 +93,53 @@ public class NumberSystem {
 
 	/**
 	 * Used to compute constant(n),multiplication(n),division(n) with dynamic programming.
-	 * Because these three methods are time consuming, we would like to cache their results in three HashMaps.
+	 * Because these three methods are time consuming, we would like to cache their results in three AutomatonTables.
+	 * Many threads can use them at once, and each automaton is computed at most once. The cached automata are shared,
+	 * so get(n), getMultiplication(n) and getDivision(n) return views of them, which are cheap to make.
 	 * For example:<br>
 	 * constantsDynamicTable.get(4) is the automaton that has a single input, and accepts if that input equals 4.<br>
 	 * multiplicationsDynamicTable(3) is the automaton that gets two inputs, and accepts if the second is 3 times the first. So the input is ordered!<br>
 	 * divisionsDynamicTable(5) is the automaton that gets two inputs, and accepts if the second is one-third of the first. So the input is ordered!<br>
 	 */
-	HashMap<Integer,Automaton> constantsDynamicTable;
-	HashMap<Integer,Automaton> multiplicationsDynamicTable;
-	HashMap<Integer,Automaton> divisionsDynamicTable;
+	AutomatonTable<Integer> constantsDynamicTable;
+	AutomatonTable<Integer> multiplicationsDynamicTable;
+	AutomatonTable<Integer> divisionsDynamicTable;
+	/**
+	 * Caches the automata of linear, without their labels. For example linearDynamicTable.get("[1, 1, -1] 0 =") is the
+	 * automaton that gets three inputs, and accepts if the sum of the first two equals the third. So the input is ordered!
+	 */
+	AutomatonTable<String> linearDynamicTable;
+
+	/**
+	 * The version of the files in the cache. Files of other versions are ignored, so the version must be increased
+	 * whenever the automata written for the same number system can change.
+	 */
+	static final int CACHE_VERSION = 1;
+
+	/**
+	 * When base is 0, constant(n), multiplication(n) and division(n) are also cached on disk, in the directory
+	 * Custom Bases/Cache/v[CACHE_VERSION]/[name]_[hash]/, where hash is a hash of the contents of the files that define
+	 * this number system. So when these files change, the automata are computed again. The files of the cache are
+	 * read when they are first needed, and written right after the automata are computed. cacheAddress is null when
+	 * base is not 0, since these automata are then built directly from digits faster than they can be read.
+	 */
+	String cacheAddress;
 
 	boolean flag_should_we_use_allRepresentations = true;
 
+	/**
+	 * When this number system is msd_k or lsd_k, and uses the built-in rules for addition and less than, and no
+	 * custom set of all representations, base is k. Numbers are then the usual base k representations, and
+	 * the automata for constants and comparisons with constants are built directly from the digits of the constant.
+	 * base is 0 for all other number systems, which use addition and lessThan instead.
+	 */
+	int base = 0;
+
+	/**
+	 * The automata built by linear have at most LINEAR_ALPHABET_LIMIT letters.
+	 */
+	static final int LINEAR_ALPHABET_LIMIT = 1 << 12;
+
 	public boolean isMsd() {
 		return is_msd;
 	}
@@ -107,12 +148,26 @@ public class NumberSystem {
 		return flag_should_we_use_allRepresentations;
 	}
 
+	/**
+	 * @return the largest number of inputs of the automata built by linear, or 0 when base is 0 and linear
+	 * cannot be used.
+	 */
+	public int getLinearInputs() {
+		if(base == 0) return 0;
+		int inputs = 0;
+		for(long letters = base; letters <= LINEAR_ALPHABET_LIMIT; letters *= base) inputs++;
+		return inputs;
+	}
+
 	public List<Integer> getAlphabet() {
 		return addition.A.get(0);
 	}
 
+	/**
+	 * @return a view of allRepresentations, or null if there is none.
+	 */
 	public Automaton getAllRepresentations(){
-		return allRepresentations;
+		return allRepresentations == null ? null : allRepresentations.view();
 	}
 
 	public NumberSystem(String name) throws Exception{
@@ -233,12 +288,97 @@ public class NumberSystem {
 				allRepresentations.NS.set(i, this);
 			}
 
+			//from now on, allRepresentations is only used through views, even by applyAllRepresentations
+			allRepresentations.shared = true;
 			applyAllRepresentations();
 		}
 
-		constantsDynamicTable = new HashMap<Integer, Automaton>();
-		multiplicationsDynamicTable = new HashMap<>();
-		divisionsDynamicTable = new HashMap<>();
+		if(UtilityMethods.isNumber(base) && !new File(addressForAddition).isFile() && !new File(complement_addressForAddition).isFile()
+			&& !new File(addressForLessThan).isFile() && !new File(complement_addressForLessThan).isFile()
+			&& !flag_should_we_use_allRepresentations) {
+			this.base = Integer.parseInt(base);
+		}
+
+		if(this.base == 0) {
+			cacheAddress = UtilityMethods.get_address_for_number_system_cache() + "v" + CACHE_VERSION + "/" + name + "_" +
+				hash(addressForAddition, complement_addressForAddition, addressForLessThan, complement_addressForLessThan,
+					addressForTheSetOfAllRepresentations, complement_addressForTheSetOfAllRepresentations) + "/";
+		}
+
+		constantsDynamicTable = new AutomatonTable<Integer>();
+		multiplicationsDynamicTable = new AutomatonTable<Integer>();
+		divisionsDynamicTable = new AutomatonTable<Integer>();
+		linearDynamicTable = new AutomatonTable<String>();
+
+		//from now on, these automata are only used through views
+		addition.shared = true;
+		lessThan.shared = true;
+		equality.shared = true;
+	}
+
+	/**
+	 * @return a hash of the contents of the files that exist among addresses, together with their positions in addresses.
+	 * @throws Exception
+	 */
+	private static String hash(String... addresses) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		for(int i = 0; i < addresses.length; i++) {
+			if(!new File(addresses[i]).isFile()) continue;
+			digest.update((i + ":").getBytes("UTF-8"));
+			digest.update(Files.readAllBytes(Paths.get(addresses[i])));
+		}
+		String result = "";
+		byte[] bytes = digest.digest();
+		for(int i = 0; i < 8; i++) result += String.format("%02x", bytes[i]);
+		return result;
+	}
+
+	/**
+	 * @param kind constant, multiplication or division
+	 * @return the automaton kind(n) from the cache on disk, or null if it is not there or cannot be read.
+	 */
+	private Automaton readFromCache(String kind, int n) {
+		if(cacheAddress == null) return null;
+		String address = cacheAddress + kind + "_" + n + ".txt";
+		if(!new File(address).isFile()) return null;
+		try {
+			Automaton M = new Automaton(address);
+			for(int i = 0; i < M.NS.size(); i++) {
+				M.NS.set(i, this);
+			}
+			return M;
+		} catch(Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the automaton M = kind(n) to the cache on disk. The file is written under a temporary name and only
+	 * renamed once it is completely written, so that other processes that use the same cache never read a partial file.
+	 * The inputs are written with their alphabets, instead of the name of this number system.
+	 * Nothing is written if the cache cannot be written to, and the temporary file is then deleted.
+	 */
+	private void writeToCache(String kind, int n, Automaton M) {
+		if(cacheAddress == null) return;
+		Automaton N = M.clone();
+		for(int i = 0; i < N.NS.size(); i++) {
+			N.NS.set(i, null);
+		}
+		File temporary = null;
+		try {
+			Files.createDirectories(Paths.get(cacheAddress));
+			temporary = File.createTempFile(kind + "_" + n + "_", ".tmp", new File(cacheAddress));
+			PrintWriter out = new PrintWriter(temporary, "UTF-8");
+			N.write(out);
+			out.close();
+			//PrintWriter does not throw on errors, so we check whether any write or the close failed
+			if(out.checkError())
+				throw new IOException("could not write " + temporary.getPath());
+			Files.move(temporary.toPath(), Paths.get(cacheAddress + kind + "_" + n + ".txt"),
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch(IOException e) {
+			if(temporary != null) temporary.delete();
+		}
 	}
 
 	/**
@@ -370,15 +510,15 @@ public class NumberSystem {
 	 * @throws Exception
 	 */
 	public Automaton get(int n) throws Exception{
-		return constant(n).clone();
+		return constant(n).view();
 	}
 
 	public Automaton getDivision(int n) throws Exception{
-		return division(n).clone();
+		return division(n).view();
 	}
 
 	public Automaton getMultiplication(int n) throws Exception{
-		return multiplication(n).clone();
+		return multiplication(n).view();
 	}
 
 	public String toString(){
@@ -398,29 +538,29 @@ public class NumberSystem {
 		Automaton M;
 		switch(comparisonOperator){
 		case "<":
-			M = lessThan.clone();
+			M = lessThan.view();
 			M.bind(a,b);
 			break;
 		case ">":
-			M = lessThan.clone();
+			M = lessThan.view();
 			M.bind(b,a);
 			break;
 		case "=":
-			M = equality.clone();
+			M = equality.view();
 			M.bind(a,b);
 			break;
 		case "!=":
-			M = equality.clone();
+			M = equality.view();
 			M.bind(a,b);
 			M.not(false,null,null);
 			break;
 		case ">=":
-			M = lessThan.clone();
+			M = lessThan.view();
 			M.bind(a,b);
 			M.not(false,null,null);
 			break;
 		case "<=":
-			M = lessThan.clone();
+			M = lessThan.view();
 			M.bind(b,a);
 			M.not(false,null,null);
 			break;
@@ -443,6 +583,11 @@ public class NumberSystem {
 		N = get(b);
 		if(comparisonOperator.equals("=")){N.bind(a);return N;}
 		else if(comparisonOperator.equals("!=")){N.bind(a);N.not(false,null,null);return N;}
+		if(base != 0) {
+			M = digitComparison(b, comparisonOperator);
+			M.bind(a);
+			return M;
+		}
 		String B = "new " + a;//this way, we make sure B != a.
 		N.bind(B);
 		M = comparison(a, B, comparisonOperator);
@@ -489,7 +634,7 @@ public class NumberSystem {
 		String b,
 		String c,
 		String arithmeticOperator) throws Exception {
-		Automaton M = addition.clone();
+		Automaton M = addition.view();
 		switch(arithmeticOperator){
 		case "+":M.bind(a,b,c);break;
 		case "-":M.bind(b,c,a);break;
@@ -588,10 +733,10 @@ public class NumberSystem {
 			throw new Exception("Constant cannot be negative.");
 		}
 
-		if (constantsDynamicTable.containsKey(n)) {
-			return constantsDynamicTable.get(n);
-		}
+		return constantsDynamicTable.get(n, () -> computeConstant(n));
+	}
 
+	private Automaton computeConstant(int n) throws Exception {
 		if(n == 0) {
 			Automaton zero = make_zero();
 			return zero;
@@ -602,6 +747,15 @@ public class NumberSystem {
 			return one;
 		}
 
+		Automaton cached = readFromCache("constant", n);
+		if(cached != null) {
+			return cached;
+		}
+
+		if(base != 0) {
+			return digitComparison(n, "=");
+		}
+
 		String a = "a", b = "b", c = "c";
 		Automaton M = get(n/2);
 
@@ -612,7 +766,7 @@ public class NumberSystem {
 		P = P.and(M, false, null, null);
 		P = P.and(N, false, null, null);
 		P.quantify(a, b, is_msd, false, null, null);
-		constantsDynamicTable.put(n, P);
+		writeToCache("constant", n, P);
 		return P;
 	}
 
@@ -625,11 +779,18 @@ public class NumberSystem {
 	private Automaton multiplication(int n)throws Exception {
 		if(n < 0)throw new Exception("constant cannot be negative");
 		if(n == 0)throw new Exception("multiplication(0)");
-		if(multiplicationsDynamicTable.containsKey(n))return multiplicationsDynamicTable.get(n);
 		//note that the case of n==0 is handled in Computer class
-		if(n == 1){
-			multiplicationsDynamicTable.put(1, equality);
-			return equality;
+		if(n == 1)return equality;
+		return multiplicationsDynamicTable.get(n, () -> computeMultiplication(n));
+	}
+
+	private Automaton computeMultiplication(int n)throws Exception {
+		Automaton cached = readFromCache("multiplication", n);
+		if(cached != null) {
+			return cached;
+		}
+		if(base != 0) {
+			return carryMultiplication(n);
 		}
 		String a = "a",b = "b",c = "c",d = "d";
 		//b = floor(n/2)*a
@@ -643,7 +804,7 @@ public class NumberSystem {
 		P = P.and(N,false,null,null);
 		P.quantify(b,c,is_msd,false,null,null);
 		P.sortLabel();
-		multiplicationsDynamicTable.put(n, P);
+		writeToCache("multiplication", n, P);
 		return P;
 	}
 
@@ -656,7 +817,17 @@ public class NumberSystem {
 	private Automaton division(int n)throws Exception {
 		if(n < 0)throw new Exception("constant cannot be negative");
 		if(n == 0)throw new Exception("division by zero");
-		if(divisionsDynamicTable.containsKey(n))return divisionsDynamicTable.get(n);
+		return divisionsDynamicTable.get(n, () -> computeDivision(n));
+	}
+
+	private Automaton computeDivision(int n)throws Exception {
+		Automaton cached = readFromCache("division", n);
+		if(cached != null) {
+			return cached;
+		}
+		if(base != 0) {
+			return remainderDivision(n);
+		}
 		String a = "a",b = "b",r = "r",q = "q";
 		//a / n = b <=> Er,q a = q + r & q = n*b & r < b
 		Automaton M = arithmetic(q,r,a,"+");
@@ -666,10 +837,239 @@ public class NumberSystem {
 		R = R.and(P,false,null,null);
 		R.quantify(q,r, is_msd,false,null,null);
 		R.sortLabel();
-		divisionsDynamicTable.put(n, R);
+		writeToCache("division", n, R);
 		return R;
 	}
 
+	/**
+	 * Only for number systems with base != 0. We read the digits of x from the least significant one, and compare
+	 * them with the digits n_0,n_1,...,n_{L-1} of n. State (i,c) means that we read i digits, and c is the comparison
+	 * of these i digits with the i least significant digits of n. While i < L, x < n as the remaining digits of x are 0.
+	 * After L digits, zeros keep the comparison and other digits make x greater.
+	 * The msd automaton is the reverse of the lsd one.
+	 * @param n a non-negative integer
+	 * @param comparisonOperator can be any of "<",">","<=",">=","=","!="
+	 * @return an automaton with a single unlabeled input. It accepts x iff x comparisonOperator n.
+	 * @throws Exception
+	 */
+	private Automaton digitComparison(int n, String comparisonOperator) throws Exception {
+		final int LESS = 0, EQUAL = 1, GREATER = 2;
+		boolean[] accept = new boolean[3];
+		switch(comparisonOperator){
+		case "<":accept[LESS] = true;break;
+		case ">":accept[GREATER] = true;break;
+		case "=":accept[EQUAL] = true;break;
+		case "!=":accept[LESS] = accept[GREATER] = true;break;
+		case "<=":accept[LESS] = accept[EQUAL] = true;break;
+		case ">=":accept[GREATER] = accept[EQUAL] = true;break;
+		default:
+			throw new Exception("undefined comparison operator");
+		}
+		List<Integer> digits = new ArrayList<Integer>();
+		for(int m = n; m > 0; m /= base) digits.add(m % base);
+		int L = digits.size();
+		Automaton M = new Automaton();
+		M.Q = 3 * (L + 1);
+		M.q0 = EQUAL;
+		M.NS.add(this);
+		M.A.add(new ArrayList<Integer>(addition.A.get(0)));
+		M.alphabetSize = base;
+		/**state (i,c) is 3*i+c*/
+		for(int i = 0; i <= L; i++) {
+			for(int c = LESS; c <= GREATER; c++) {
+				M.O.add((i < L ? accept[LESS] : accept[c]) ? 1 : 0);
+				TreeMap<Integer,List<Integer>> transitions = new TreeMap<Integer,List<Integer>>();
+				for(int x = 0; x < base; x++) {
+					int next;
+					if(i < L) next = x < digits.get(i) ? LESS : x > digits.get(i) ? GREATER : c;
+					else next = x == 0 ? c : GREATER;
+					List<Integer> dest = new ArrayList<Integer>();
+					dest.add(3 * Math.min(i + 1, L) + next);
+					transitions.put(M.A.get(0).indexOf(x), dest);
+				}
+				M.d.add(transitions);
+			}
+		}
+		if(is_msd)
+			M.reverse(false,null,null);
+		else
+			M.minimize(false,null,null);
+		M.canonize();
+		return M;
+	}
+
+	/**
+	 * Only for number systems with base != 0. We read the digits of x and y from the least significant one. State c
+	 * is the carry of n*x: on the digits (x_i,y_i), (c + n*x_i) mod base must be y_i, and the next carry is
+	 * (c + n*x_i) / base. Carries are less than n, and we accept when the carry is 0.
+	 * The msd automaton is the reverse of the lsd one.
+	 * @param n a positive integer
+	 * @return an automaton with two unlabeled inputs. It accepts iff the second is n times the first. So the input is ordered!
+	 * @throws Exception
+	 */
+	private Automaton carryMultiplication(int n) throws Exception {
+		Automaton M = digitAutomaton(n, 0);
+		for(int c = 0; c < n; c++) {
+			for(int x = 0; x < base; x++) {
+				int sum = c + n * x;
+				List<Integer> dest = new ArrayList<Integer>();
+				dest.add(sum / base);
+				M.d.get(c).put(x + (sum % base) * base, dest);
+			}
+		}
+		if(is_msd)
+			M.reverse(false,null,null);
+		else
+			M.minimize(false,null,null);
+		M.canonize();
+		return M;
+	}
+
+	/**
+	 * Only for number systems with base != 0. We read the digits of x and y from the most significant one. State r is
+	 * the remainder of the division by n of the digits of x read so far: on the digits (x_i,y_i), y_i must be
+	 * (r*base + x_i) / n, which is less than base, and the next remainder is (r*base + x_i) mod n.
+	 * Every state is final, since y is the quotient whatever the remainder is.
+	 * The lsd automaton is the reverse of the msd one.
+	 * @param n a positive integer
+	 * @return an automaton with two unlabeled inputs. It accepts iff the second is the quotient of the first by n.
+	 * So the input is ordered!
+	 * @throws Exception
+	 */
+	private Automaton remainderDivision(int n) throws Exception {
+		Automaton M = digitAutomaton(n, -1);
+		for(int r = 0; r < n; r++) {
+			for(int x = 0; x < base; x++) {
+				int value = r * base + x;
+				List<Integer> dest = new ArrayList<Integer>();
+				dest.add(value % n);
+				M.d.get(r).put(x + (value / n) * base, dest);
+			}
+		}
+		if(is_msd)
+			M.minimize(false,null,null);
+		else
+			M.reverse(false,null,null);
+		M.canonize();
+		return M;
+	}
+
+	/**
+	 * Only for number systems with base != 0. We read the digits of the inputs from the least significant one. After
+	 * i digits, constant plus the sum of the coefficients times the numbers formed by the i digits read so far is
+	 * carry*base^i + e, where e is a number with i digits. On the digits (x_1,...,x_m), with s the sum of the
+	 * coefficients times x_j, the next digit of e is (carry + s) mod base and the next carry is floor((carry + s)/base).
+	 * Since the remaining digits are 0, the value is negative iff carry < 0, and it is 0 iff carry = 0 and e = 0. So the
+	 * state is (carry, whether e = 0), where the second part is only kept for the operators that need it. For = the digits
+	 * of e must be 0. Carries stay between -max and max, where max is the larger of |constant| and the sum of the |coefficients|.
+	 * The msd automaton is the reverse of the lsd one. The automata are cached in linearDynamicTable.
+	 * @param variables the labels of the inputs, which are distinct
+	 * @param coefficients the coefficients of the inputs, which can be negative or 0
+	 * @param constant
+	 * @param comparisonOperator can be any of "<",">","<=",">=","=","!="
+	 * @return an automaton with inputs labeled variables. It accepts iff the sum of coefficients[j]*variables[j], plus
+	 * constant, comparisonOperator 0.
+	 * @throws Exception
+	 */
+	public Automaton linear(List<String> variables, List<Integer> coefficients, long constant, String comparisonOperator)
+		throws Exception {
+		if(variables.size() == 0 || variables.size() > getLinearInputs()) throw new Exception("invalid use of method linear");
+		String key = coefficients + " " + constant + " " + comparisonOperator;
+		Automaton M = linearDynamicTable.get(key, () -> carryLinear(coefficients, constant, comparisonOperator)).view();
+		M.bind(variables);
+		return M;
+	}
+
+	/**
+	 * @return the automaton of linear, with unlabeled inputs.
+	 */
+	private Automaton carryLinear(List<Integer> coefficients, long constant, String comparisonOperator) throws Exception {
+		final int NEGATIVE = 0, ZERO = 1, POSITIVE = 2;
+		boolean[] accept = new boolean[3];
+		switch(comparisonOperator){
+		case "<":accept[NEGATIVE] = true;break;
+		case ">":accept[POSITIVE] = true;break;
+		case "=":accept[ZERO] = true;break;
+		case "!=":accept[NEGATIVE] = accept[POSITIVE] = true;break;
+		case "<=":accept[NEGATIVE] = accept[ZERO] = true;break;
+		case ">=":accept[POSITIVE] = accept[ZERO] = true;break;
+		default:
+			throw new Exception("undefined comparison operator");
+		}
+		int m = coefficients.size();
+		boolean equality = comparisonOperator.equals("=");
+		/**whether e = 0 matters only when a carry of 0 is accepted by one of ZERO and POSITIVE but not the other*/
+		boolean zeros = !equality && accept[ZERO] != accept[POSITIVE];
+		/**sum[x] is the sum of the coefficients times the digits of the letter x*/
+		int letters = 1;
+		for(int j = 0; j < m; j++) letters *= base;
+		long[] sum = new long[letters];
+		for(int j = 0, block = 1; j < m; j++, block *= base) {
+			for(int x = block; x < block * base; x++) sum[x] = sum[x - block] + coefficients.get(j);
+		}
+		Automaton M = new Automaton();
+		for(int j = 0; j < m; j++) {
+			M.NS.add(this);
+			M.A.add(new ArrayList<Integer>(addition.A.get(0)));
+		}
+		M.alphabetSize = letters;
+		M.q0 = 0;
+		/**state (carry, e = 0) has the key 2*carry + 1 if e = 0, and 2*carry otherwise*/
+		HashMap<Long,Integer> states = new HashMap<Long,Integer>();
+		List<Long> keys = new ArrayList<Long>();
+		states.put(2L * constant + 1, 0);
+		keys.add(2L * constant + 1);
+		for(int q = 0; q < keys.size(); q++) {
+			long carry = keys.get(q) >> 1;
+			boolean zero = (keys.get(q) & 1) == 1;
+			M.O.add(accept[carry < 0 ? NEGATIVE : carry > 0 || !zero ? POSITIVE : ZERO] ? 1 : 0);
+			TreeMap<Integer,List<Integer>> transitions = new TreeMap<Integer,List<Integer>>();
+			for(int x = 0; x < letters; x++) {
+				long value = carry + sum[x];
+				long digit = Math.floorMod(value, (long)base);
+				if(equality && digit != 0) continue;
+				long key = 2 * Math.floorDiv(value, (long)base) + (!zeros || (zero && digit == 0) ? 1 : 0);
+				Integer p = states.get(key);
+				if(p == null) {
+					p = keys.size();
+					states.put(key, p);
+					keys.add(key);
+				}
+				List<Integer> dest = new ArrayList<Integer>();
+				dest.add(p);
+				transitions.put(x, dest);
+			}
+			M.d.add(transitions);
+		}
+		M.Q = keys.size();
+		if(is_msd)
+			M.reverse(false,null,null);
+		else
+			M.minimize(false,null,null);
+		M.canonize();
+		return M;
+	}
+
+	/**
+	 * @param accepting the state that is final, or -1 when all states are final
+	 * @return an automaton with Q states, initial state 0, no transitions, and two unlabeled inputs of this number system.
+	 */
+	private Automaton digitAutomaton(int Q, int accepting) {
+		Automaton M = new Automaton();
+		M.Q = Q;
+		M.q0 = 0;
+		for(int i = 0; i < 2; i++) {
+			M.NS.add(this);
+			M.A.add(new ArrayList<Integer>(addition.A.get(0)));
+		}
+		M.alphabetSize = base * base;
+		for(int q = 0; q < Q; q++) {
+			M.O.add(accepting == -1 || q == accepting ? 1 : 0);
+			M.d.add(new TreeMap<Integer,List<Integer>>());
+		}
+		return M;
+	}
+
 	private Automaton make_zero()throws Exception {
 		List<Integer> alph = new ArrayList<Integer>();
 		alph.add(0);
@@ -681,7 +1081,6 @@ public class NumberSystem {
 		M.encoder = new ArrayList<Integer>();
 		M.encoder.add(1);
 		M.canonize();
-		constantsDynamicTable.put(0, M);
 		return M;
 	}
 
@@ -700,7 +1099,6 @@ public class NumberSystem {
 		M.encoder = new ArrayList<Integer>();
 		M.encoder.add(1);
 		M.canonize();
-		constantsDynamicTable.put(1, M);
 		return M;
 	}
 }
@@ -187,6 +187,7 @@ public class OstrowskiNumeration {
             repr.d.remove(0);
             repr.O.remove(0);
             --repr.Q;
+            repr.minimal = false;
             repr.d.forEach(tm -> {
                 tm.forEach((k, v) -> {
                     int dest = v.get(0) - 1;
@@ -251,6 +252,7 @@ public class OstrowskiNumeration {
             adder.d.remove(0);
             adder.O.remove(0);
             --adder.Q;
+            adder.minimal = false;
             adder.d.forEach(tm -> {
                 tm.forEach((k, v) -> {
                     int dest = v.get(0) - 1;
@@ -19,7 +19,6 @@
 package Automata;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.TreeMap;
 import java.util.regex.Matcher;
@@ -100,20 +99,17 @@ public class ParseMethods {
 					ns = "msd_" + m.group(10);
 				}
 
-				HashMap<String,NumberSystem> H = Predicate.get_number_system_Hash();
-				if(!H.containsKey(ns)) {
-					try {
-						H.put(ns, new NumberSystem(ns));
-					} catch (Exception e) {
-						// TODO Auto-generated catch block
-						throw new Exception(
-							e.getMessage() + UtilityMethods.newLine() +
-							"\tNumber system " + ns + " does not exist.");
-					}
+				NumberSystem N;
+				try {
+					N = Predicate.get_number_system(ns);
+				} catch (Exception e) {
+					throw new Exception(
+						e.getMessage() + UtilityMethods.newLine() +
+						"\tNumber system " + ns + " does not exist.");
 				}
 
-				A.add(H.get(ns).getAlphabet());
-				bases.add(H.get(ns));
+				A.add(N.getAlphabet());
+				bases.add(N);
 			}
 
 			index = m.end();
@@ -1,24 +1,34 @@
 package Automata;
 
-import java.util.ArrayList;
-
+/**
+ * A refinable partition, as in Valmari's minimization algorithm. Used by ValmariMinimizer.<br>
+ * The elements of set s are E[F[s]],...,E[P[s]-1], L[e] is the position of e in E, and S[e] is the set of e.
+ * The marked elements of set s are the first M[s] of them, and W holds the sets with marked elements.
+ * All the state is kept per instance, and init reuses the arrays when they are large enough.
+ */
 public class Partition {
-	static int[] M,W;
-	static int w = 0;
-	
+	int[] M = new int[0], W = new int[0];
+	int w = 0;
+
 	int z;
-	Integer[] E;
-	int []L,S,F,P;
+	int[] E = new int[0], L = new int[0], S = new int[0], F = new int[0], P = new int[0];
 
 	void init( int n ){
-	    z = n == 0? 0:1;  
-	    E = new Integer[n];
-	    L = new int[n]; S = new int[n];
-	    F = new int[n]; P = new int[n];
+	    z = n == 0? 0:1;
+	    if( E.length < n ){
+	    	E = new int[n]; L = new int[n]; S = new int[n];
+	    	F = new int[n]; P = new int[n];
+	    }
+	    if( M.length < n+1 ){
+	    	M = new int[n+1]; W = new int[n+1];
+	    }
+	    w = 0;
 	    for( int i = 0; i < n; ++i ){
-	      E[i] = L[i] = i; S[i] = 0; 
+	      E[i] = L[i] = i; S[i] = 0;
 	      F[i] = P[i] = 0;
+	      M[i] = 0;
 	    }
+	    M[n] = 0;
 	    if( z != 0 ){ F[0] = 0; P[0] = n; }
 	}
 
@@ -26,14 +36,7 @@ public class Partition {
 		int s = S[e];
 		int i = L[e];
 		int j = F[s]+M[s];
-		/*System.out.println("s = " + s);	
-		System.out.println("F[s] = " + F[s]);	
-		System.out.println("M[s] = " + M[s]);
-		System.out.println("i = " + i);
-		System.out.println("j = " + j);
-		System.out.println("|E| = " + E.length);*/
-
-	    E[i] = E[j]; 
+	    E[i] = E[j];
 	    L[E[i]] = i;
 	    E[j] = e; L[e] = j;
 	    if( M[s]++ == 0 ){ W[w++] = s; }
@@ -44,13 +47,13 @@ public class Partition {
 			int s = W[--w], j = F[s]+M[s];
 		    if( j == P[s] ){M[s] = 0; continue;}
 		    if( M[s] <= (P[s]-j) ){
-		    	F[z] = F[s]; P[z] = F[s] = j; 
+		    	F[z] = F[s]; P[z] = F[s] = j;
 		    }
 		    else{
-		        P[z] = P[s]; F[z] = P[s] = j; 
+		        P[z] = P[s]; F[z] = P[s] = j;
 		    }
 		    for( int i = F[z]; i < P[z]; ++i ){
-		    	S[E[i]] = z; 
+		    	S[E[i]] = z;
 		    }
 		    M[s] = M[z++] = 0;
 		}
@@ -0,0 +1,314 @@
+package Automata;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Makes a non-deterministic automaton smaller before it is determinized, without changing the language it accepts
+ * from its set of initial states. It is used by Automaton.subsetConstruction, which takes care of logging.<br>
+ * The subset construction only looks at whether a set of states has a final state, so outputs are treated as 0 or 1,
+ * and the reduced table only has outputs 0 and 1. The reduction has three steps: <br>
+ * -trim removes the states that are not reachable from the initial states, and the states from which no final
+ * state is reachable. <br>
+ * -bisimulation merges the states that are forward bisimilar: the coarsest partition where two states of the same
+ * block are both final or both not, and have transitions on the same letters to the same blocks. <br>
+ * -simulation merges the states that simulate each other, and then removes every transition (q,x,p) when q has
+ * a transition (q,x,p') where p' simulates p but p does not simulate p' (p is a little brother of p'). Here p' simulates
+ * p when p' is final if p is, and every transition (p,x,r) is matched by a transition (p',x,r') where r' simulates r.
+ * Initial states are pruned in the same way. Computing the simulation takes time and memory quadratic in the number
+ * of states, so it is only done on tables with at most SIMULATION_LIMIT states.
+ */
+class Reduction {
+	static final int SIMULATION_LIMIT = 1024;
+
+	TransitionTable table;
+	/**the sorted set of initial states of table*/
+	int[] initial;
+
+	Reduction(TransitionTable table, int[] initial) {
+		this.table = table;
+		this.initial = initial;
+	}
+
+	/**
+	 * Removes the states that are not reachable from the initial states, and the ones that cannot reach a final state.
+	 */
+	void trim() {
+		boolean[] keep = new boolean[table.Q];
+		int[] queue = new int[table.Q];
+		int head = 0, tail = 0;
+		for(int q:initial) {
+			keep[q] = true;
+			queue[tail++] = q;
+		}
+		while(head < tail) {
+			int q = queue[head++];
+			for(int i = table.targetStart[table.rowStart[q]]; i < table.targetStart[table.rowStart[q+1]]; i++) {
+				int p = table.targets[i];
+				if(!keep[p]) {
+					keep[p] = true;
+					queue[tail++] = p;
+				}
+			}
+		}
+		boolean[] dead = table.deadStates();
+		for(int q = 0; q < table.Q; q++) {
+			if(dead[q]) keep[q] = false;
+		}
+		int[] block = new int[table.Q];
+		int count = 0;
+		for(int q = 0; q < table.Q; q++) block[q] = keep[q] ? count++ : -1;
+		quotient(block, count);
+		if(initial.length == 0) {
+			/**nothing is accepted: we keep a single state, so that the subset construction still has an initial set*/
+			TransitionTable.Builder builder = new TransitionTable.Builder(table.alphabetSize);
+			builder.beginState(0);
+			table = builder.build();
+			initial = new int[]{0};
+		}
+	}
+
+	/**
+	 * Merges the states that are forward bisimilar, by refining the partition until it is stable: in every round,
+	 * two states stay in the same block only if they have the same block and the same transitions to blocks.
+	 */
+	void bisimulation() {
+		int[] block = new int[table.Q];
+		int count = 0;
+		boolean[] seen = new boolean[2];
+		/**blocks are numbered in the order of their first state, so the result does not depend on hashing*/
+		int[] id = new int[2];
+		for(int q = 0; q < table.Q; q++) {
+			int output = table.O[q] != 0 ? 1 : 0;
+			if(!seen[output]) {
+				seen[output] = true;
+				id[output] = count++;
+			}
+			block[q] = id[output];
+		}
+		while(true) {
+			HashMap<Signature,Integer> signatures = new HashMap<Signature,Integer>();
+			int[] next = new int[table.Q];
+			for(int q = 0; q < table.Q; q++) {
+				Signature s = new Signature(block[q], transitions(q, block));
+				Integer b = signatures.get(s);
+				if(b == null) {
+					b = signatures.size();
+					signatures.put(s, b);
+				}
+				next[q] = b;
+			}
+			block = next;
+			if(signatures.size() == count) break;
+			count = signatures.size();
+		}
+		quotient(block, count);
+	}
+
+	/**
+	 * Merges the states that simulate each other, and prunes the transitions to little brothers, see above.
+	 * Does nothing when the table has more than SIMULATION_LIMIT states.
+	 */
+	void simulation() {
+		int n = table.Q;
+		if(n > SIMULATION_LIMIT) return;
+		/**p' simulates p iff bit p' of simulators[p] is set*/
+		long[][] simulators = new long[n][(n + 63) >>> 6];
+		for(int p = 0; p < n; p++) {
+			for(int q = 0; q < n; q++) {
+				if(table.O[p] == 0 || table.O[q] != 0) simulators[p][q >>> 6] |= 1L << q;
+			}
+		}
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			for(int p = 0; p < n; p++) {
+				for(int e = table.rowStart[p]; e < table.rowStart[p+1]; e++) {
+					for(int i = table.targetStart[e]; i < table.targetStart[e+1]; i++) {
+						long[] wanted = simulators[table.targets[i]];
+						long[] row = simulators[p];
+						for(int w = 0; w < row.length; w++) {
+							for(long bits = row[w]; bits != 0; bits &= bits - 1) {
+								int q = (w << 6) + Long.numberOfTrailingZeros(bits);
+								if(!hasSuccessorIn(q, table.letter[e], wanted)) {
+									row[w] &= ~(1L << q);
+									changed = true;
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		int[] block = new int[n], representative = new int[n];
+		int count = 0;
+		Arrays.fill(block, -1);
+		for(int p = 0; p < n; p++) {
+			if(block[p] != -1) continue;
+			representative[count] = p;
+			for(int q = p; q < n; q++) {
+				if(contains(simulators[p], q) && contains(simulators[q], p)) block[q] = count;
+			}
+			count++;
+		}
+		quotient(block, count);
+		/**the simulation of the quotient: blocks simulate each other like their representatives do*/
+		long[][] quotientSimulators = new long[count][(count + 63) >>> 6];
+		for(int b = 0; b < count; b++) {
+			for(int c = 0; c < count; c++) {
+				if(contains(simulators[representative[b]], representative[c])) quotientSimulators[b][c >>> 6] |= 1L << c;
+			}
+		}
+		prune(quotientSimulators);
+		trim();
+	}
+
+	private static boolean contains(long[] set, int q) {
+		return (set[q >>> 6] & (1L << q)) != 0;
+	}
+
+	/**
+	 * @return true if q has a transition on the letter x to a state of the set.
+	 */
+	private boolean hasSuccessorIn(int q, int x, long[] set) {
+		int lo = table.rowStart[q], hi = table.rowStart[q+1] - 1;
+		while(lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if(table.letter[mid] < x) lo = mid + 1;
+			else if(table.letter[mid] > x) hi = mid - 1;
+			else {
+				for(int i = table.targetStart[mid]; i < table.targetStart[mid+1]; i++) {
+					if(contains(set, table.targets[i])) return true;
+				}
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the destinations and the initial states that are little brothers of another one of the same edge,
+	 * or of another initial state. simulators is a partial order here, since simulation equivalent states are merged.
+	 */
+	private void prune(long[][] simulators) {
+		TransitionTable.Builder builder = new TransitionTable.Builder(table.alphabetSize);
+		for(int q = 0; q < table.Q; q++) {
+			builder.beginState(table.O[q]);
+			for(int e = table.rowStart[q]; e < table.rowStart[q+1]; e++) {
+				builder.addEdge(table.letter[e]);
+				for(int i = table.targetStart[e]; i < table.targetStart[e+1]; i++) {
+					if(!isLittleBrother(table.targets[i], table.targets, table.targetStart[e], table.targetStart[e+1], simulators))
+						builder.addTarget(table.targets[i]);
+				}
+			}
+		}
+		int count = 0;
+		int[] kept = new int[initial.length];
+		for(int q:initial) {
+			if(!isLittleBrother(q, initial, 0, initial.length, simulators)) kept[count++] = q;
+		}
+		table = builder.build();
+		initial = Arrays.copyOf(kept, count);
+	}
+
+	private static boolean isLittleBrother(int p, int[] states, int from, int to, long[][] simulators) {
+		for(int i = from; i < to; i++) {
+			if(states[i] != p && contains(simulators[p], states[i])) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the transitions of q, as (letter << 32 | block of destination), sorted and without repetitions.
+	 */
+	private long[] transitions(int q, int[] block) {
+		int n = 0;
+		long[] result = new long[table.targetStart[table.rowStart[q+1]] - table.targetStart[table.rowStart[q]]];
+		for(int e = table.rowStart[q]; e < table.rowStart[q+1]; e++) {
+			for(int i = table.targetStart[e]; i < table.targetStart[e+1]; i++) {
+				if(block[table.targets[i]] != -1) result[n++] = ((long)table.letter[e] << 32) | block[table.targets[i]];
+			}
+		}
+		Arrays.sort(result, 0, n);
+		int size = 0;
+		for(int i = 0; i < n; i++) {
+			if(size == 0 || result[i] != result[size-1]) result[size++] = result[i];
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Replaces table by its quotient, where state b has the transitions of all the states q with block[q] = b.
+	 * States with block -1 are removed. The blocks should be numbered in the order of their first state.
+	 */
+	private void quotient(int[] block, int count) {
+		TransitionTable.Builder builder = new TransitionTable.Builder(table.alphabetSize);
+		/**members[start[b]],...,members[start[b+1]-1] are the states of block b, in increasing order*/
+		int[] members = new int[table.Q], start = new int[count + 1];
+		for(int q = 0; q < table.Q; q++) {
+			if(block[q] != -1) start[block[q]+1]++;
+		}
+		for(int b = 0; b < count; b++) start[b+1] += start[b];
+		int[] position = Arrays.copyOf(start, count);
+		for(int q = 0; q < table.Q; q++) {
+			if(block[q] != -1) members[position[block[q]]++] = q;
+		}
+		for(int b = 0; b < count; b++) {
+			int output = 0, n = 0;
+			long[] transitions = new long[0];
+			for(int k = start[b]; k < start[b+1]; k++) {
+				int q = members[k];
+				if(table.O[q] != 0) output = 1;
+				long[] t = transitions(q, block);
+				transitions = Arrays.copyOf(transitions, n + t.length);
+				System.arraycopy(t, 0, transitions, n, t.length);
+				n += t.length;
+			}
+			Arrays.sort(transitions);
+			builder.beginState(output);
+			for(int i = 0; i < n; i++) {
+				if(i > 0 && transitions[i] == transitions[i-1]) continue;
+				int x = (int)(transitions[i] >>> 32);
+				if(i == 0 || x != (int)(transitions[i-1] >>> 32)) builder.addEdge(x);
+				builder.addTarget((int)transitions[i]);
+			}
+		}
+		int size = 0;
+		int[] result = new int[initial.length];
+		for(int q:initial) {
+			if(block[q] != -1) result[size++] = block[q];
+		}
+		Arrays.sort(result, 0, size);
+		int distinct = 0;
+		for(int i = 0; i < size; i++) {
+			if(distinct == 0 || result[i] != result[distinct-1]) result[distinct++] = result[i];
+		}
+		table = builder.build();
+		initial = Arrays.copyOf(result, distinct);
+	}
+
+	/**
+	 * The block of a state and its transitions to blocks, as the key of the refinement in bisimulation.
+	 */
+	private static class Signature {
+		int block;
+		long[] transitions;
+
+		Signature(int block, long[] transitions) {
+			this.block = block;
+			this.transitions = transitions;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * block + Arrays.hashCode(transitions);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Signature)) return false;
+			Signature s = (Signature)o;
+			return block == s.block && Arrays.equals(transitions, s.transitions);
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package Automata;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Determinizes an automaton, given by its transition table, by the subset construction.
+ * It is used by Automaton.subsetConstruction, which takes care of logging and of Q and q0.<br>
+ * The states of the result are the sets of states reachable from the initial set, numbered in the order they are
+ * discovered by a breadth-first search that visits the letters of a state in increasing order. determinize() does
+ * this sequentially. determinizeInParallel() expands every level of the search in parallel, and then renumbers the
+ * states so that the result is exactly the same as the one of determinize(), in the same way as
+ * CrossProduct.exploreInParallel.
+ */
+class SubsetConstruction {
+	TransitionTable table;
+
+	SubsetConstruction(TransitionTable table) {
+		this.table = table;
+	}
+
+	/**
+	 * The buffers used to expand a set of states. Every thread has its own.
+	 */
+	class Expansion {
+		/**edges[i] holds (letter << 32 | edge) for the edges leaving the members of the set*/
+		long[] edges = new long[16];
+		/**mark[p] == stamp iff p was already added to the destination we are currently collecting*/
+		int[] mark = new int[table.Q];
+		int stamp = 0;
+		/**the destination we are currently collecting, in members[0],...,members[size-1]*/
+		int[] members = new int[16];
+		int size;
+		/**the number of edges of the set, after expand*/
+		int n;
+
+		/**
+		 * Collects the edges leaving set[from],...,set[to-1], sorted by letter.
+		 * @return the output of the set: 1 if it has a final state, and 0 otherwise.
+		 */
+		int expand(int[] set, int from, int to) {
+			n = 0;
+			int output = 0;
+			for(int k = from; k < to; k++) {
+				int q = set[k];
+				if(table.O[q] != 0) output = 1;
+				for(int e = table.rowStart[q]; e < table.rowStart[q+1]; e++) {
+					if(n == edges.length) edges = Arrays.copyOf(edges, 2 * n);
+					edges[n++] = ((long)table.letter[e] << 32) | e;
+				}
+			}
+			Arrays.sort(edges, 0, n);
+			return output;
+		}
+
+		/**
+		 * Collects, in members, the sorted destination of the edges edges[i],... that read the same letter as edges[i].
+		 * @return the index of the first edge that reads another letter.
+		 */
+		int destination(int i) {
+			int in = (int)(edges[i] >>> 32);
+			stamp++;
+			size = 0;
+			for(; i < n && (int)(edges[i] >>> 32) == in; i++) {
+				int e = (int)edges[i];
+				for(int j = table.targetStart[e]; j < table.targetStart[e+1]; j++) {
+					int p = table.targets[j];
+					if(mark[p] == stamp) continue;
+					mark[p] = stamp;
+					if(size == members.length) members = Arrays.copyOf(members, 2 * size);
+					members[size++] = p;
+				}
+			}
+			Arrays.sort(members, 0, size);
+			return i;
+		}
+	}
+
+	/**
+	 * @param initial the sorted initial set of states
+	 * @return the deterministic automaton. Its initial state is 0.
+	 */
+	TransitionTable determinize(int[] initial) {
+		return determinize(initial, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Same as determinize(initial), but gives up as soon as the sets of states of the result have more than limit
+	 * members in total. This bounds both the time and the memory of the construction.
+	 * @return the deterministic automaton, or null if we gave up.
+	 */
+	TransitionTable determinize(int[] initial, long limit) {
+		SubsetIndex subsets = new SubsetIndex();
+		subsets.add(initial, initial.length);
+		TransitionTable.Builder builder = new TransitionTable.Builder(table.alphabetSize);
+		Expansion x = new Expansion();
+		for(int current = 0; current < subsets.size; current++) {
+			builder.beginState(x.expand(subsets.elements, subsets.start[current], subsets.start[current+1]));
+			for(int i = 0; i < x.n;) {
+				int in = (int)(x.edges[i] >>> 32);
+				i = x.destination(i);
+				if(x.size > 0) {
+					builder.addEdge(in);
+					builder.addTarget(subsets.add(x.members, x.size));
+					if(subsets.start[subsets.size] > limit) return null;
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Same as determinize(initial), but the sets of every level of the breadth-first search are expanded in parallel.
+	 * Sets get temporary ids from a ConcurrentSubsetIndex, in whatever order threads reach them, and at the end we
+	 * renumber them by a sequential breadth-first search over the recorded transitions.
+	 */
+	TransitionTable determinizeInParallel(int[] initial) {
+		ConcurrentSubsetIndex subsets = new ConcurrentSubsetIndex();
+		AtomicInteger numberOfStates = new AtomicInteger();
+		ThreadLocal<Expansion> expansions = ThreadLocal.withInitial(Expansion::new);
+		/**setOf[i] is the set of temporary state i, and the transitions of temporary state i are letters[i] and dests[i]*/
+		int[][] setOf = new int[16][], letters = new int[16][], dests = new int[16][];
+		int[] outputs = new int[16];
+		subsets.add(initial, initial.length, numberOfStates);
+		setOf[0] = initial;
+		int levelBegin = 0, levelEnd = 1;
+		int chunks = 4 * Runtime.getRuntime().availableProcessors();
+		while(levelBegin < levelEnd) {
+			if(letters.length < levelEnd) {
+				int length = Math.max(2 * letters.length, levelEnd);
+				letters = Arrays.copyOf(letters, length);
+				dests = Arrays.copyOf(dests, length);
+				outputs = Arrays.copyOf(outputs, length);
+			}
+			final int begin = levelBegin, end = levelEnd, chunkSize = Math.max(1, (end - begin + chunks - 1) / chunks);
+			final int[][] sets = setOf, levelLetters = letters, levelDests = dests;
+			final int[] levelOutputs = outputs;
+			/**created[chunk] holds the ids and the sets of the states of the next level that were reached in the chunk*/
+			int[][] createdIds = new int[(end - begin + chunkSize - 1) / chunkSize][];
+			int[][][] createdSets = new int[createdIds.length][][];
+			IntStream.range(0, createdIds.length).parallel().forEach(chunk -> {
+				Expansion x = expansions.get();
+				int[] newIds = new int[16];
+				int[][] newSets = new int[16][];
+				int size = 0;
+				int[] stateLetters = new int[16], stateDests = new int[16];
+				for(int state = begin + chunk * chunkSize; state < Math.min(end, begin + (chunk + 1) * chunkSize); state++) {
+					levelOutputs[state] = x.expand(sets[state], 0, sets[state].length);
+					int edges = 0;
+					for(int i = 0; i < x.n;) {
+						int in = (int)(x.edges[i] >>> 32);
+						i = x.destination(i);
+						if(x.size == 0) continue;
+						int id = subsets.add(x.members, x.size, numberOfStates);
+						if(id < 0) {
+							id = ~id;
+							if(size == newIds.length) {
+								newIds = Arrays.copyOf(newIds, 2 * size);
+								newSets = Arrays.copyOf(newSets, 2 * size);
+							}
+							newIds[size] = id;
+							newSets[size++] = Arrays.copyOf(x.members, x.size);
+						}
+						if(edges == stateLetters.length) {
+							stateLetters = Arrays.copyOf(stateLetters, 2 * edges);
+							stateDests = Arrays.copyOf(stateDests, 2 * edges);
+						}
+						stateLetters[edges] = in;
+						stateDests[edges++] = id;
+					}
+					levelLetters[state] = Arrays.copyOf(stateLetters, edges);
+					levelDests[state] = Arrays.copyOf(stateDests, edges);
+				}
+				createdIds[chunk] = Arrays.copyOf(newIds, size);
+				createdSets[chunk] = Arrays.copyOf(newSets, size);
+			});
+			int total = numberOfStates.get();
+			if(setOf.length < total) setOf = Arrays.copyOf(setOf, Math.max(2 * setOf.length, total));
+			for(int chunk = 0; chunk < createdIds.length; chunk++) {
+				for(int i = 0; i < createdIds[chunk].length; i++) {
+					setOf[createdIds[chunk][i]] = createdSets[chunk][i];
+				}
+				createdSets[chunk] = null;
+			}
+			for(int state = begin; state < end; state++) setOf[state] = null;
+			levelBegin = levelEnd;
+			levelEnd = total;
+		}
+		return renumber(numberOfStates.get(), outputs, letters, dests);
+	}
+
+	/**
+	 * Used in determinizeInParallel to number the states in the same order as determinize().
+	 */
+	private TransitionTable renumber(int n, int[] outputs, int[][] letters, int[][] dests) {
+		/**newId[t] is the state of the result for temporary state t, and state i of the result is temporary state order[i]*/
+		int[] newId = new int[n], order = new int[n];
+		Arrays.fill(newId, -1);
+		int numberOfStates = 0;
+		newId[0] = numberOfStates;
+		order[numberOfStates++] = 0;
+		TransitionTable.Builder builder = new TransitionTable.Builder(table.alphabetSize);
+		for(int current = 0; current < numberOfStates; current++) {
+			int t = order[current];
+			builder.beginState(outputs[t]);
+			for(int i = 0; i < letters[t].length; i++) {
+				int destination = dests[t][i];
+				if(newId[destination] == -1) {
+					newId[destination] = numberOfStates;
+					order[numberOfStates++] = destination;
+				}
+				builder.addEdge(letters[t][i]);
+				builder.addTarget(newId[destination]);
+			}
+		}
+		return builder.build();
+	}
+}
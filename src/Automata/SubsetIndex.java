@@ -0,0 +1,77 @@
+package Automata;
+
+import java.util.Arrays;
+
+/**
+ * Numbers sets of states without boxing. It is used in the subset construction, where every state of the
+ * resulting automaton is a set of states of the original one.<br>
+ * Sets are given as sorted arrays of distinct states. Set i is stored in
+ * elements[start[i]],...,elements[start[i+1]-1], and sets are numbered 0,1,2,... in the order they are added.
+ * The hash table maps a set to its number by open addressing, and compares sets against the stored elements.
+ */
+class SubsetIndex {
+	int size;
+	int[] start = new int[17];
+	int[] elements = new int[16];
+	/**
+	 * table[i] is the number of a set plus one, or 0 when the slot is empty.
+	 */
+	private int[] table = new int[32];
+	/**
+	 * The hash codes of the sets, so that we never recompute them when the table grows.
+	 */
+	private int[] hashes = new int[16];
+
+	static int hash(int[] set, int length) {
+		int h = length;
+		for(int i = 0; i < length; i++) {
+			h = 31 * h + set[i];
+		}
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private boolean matches(int id, int[] set, int length) {
+		if(start[id+1] - start[id] != length) return false;
+		for(int i = 0, j = start[id]; i < length; i++, j++) {
+			if(elements[j] != set[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of the set set[0],...,set[length-1]. The set is added (and copied) if it is new.
+	 */
+	int add(int[] set, int length) {
+		int h = hash(set, length);
+		int mask = table.length - 1;
+		int i = h & mask;
+		for(; table[i] != 0; i = (i + 1) & mask) {
+			if(matches(table[i] - 1, set, length)) return table[i] - 1;
+		}
+		int id = size++;
+		if(size >= hashes.length) {
+			hashes = Arrays.copyOf(hashes, 2 * hashes.length);
+			start = Arrays.copyOf(start, 2 * start.length);
+		}
+		if(start[id] + length > elements.length) {
+			elements = Arrays.copyOf(elements, Math.max(2 * elements.length, start[id] + length));
+		}
+		System.arraycopy(set, 0, elements, start[id], length);
+		start[id+1] = start[id] + length;
+		hashes[id] = h;
+		table[i] = id + 1;
+		if(2 * size > table.length) grow();
+		return id;
+	}
+
+	private void grow() {
+		table = new int[2 * table.length];
+		int mask = table.length - 1;
+		for(int id = 0; id < size; id++) {
+			int i = hashes[id] & mask;
+			while(table[i] != 0) i = (i + 1) & mask;
+			table[i] = id + 1;
+		}
+	}
+}
@@ -0,0 +1,531 @@
+package Automata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * A primitive, boxing-free representation of the transition function and the outputs of an automaton.<br>
+ * The transition function d of Automaton stores a TreeMap entry, a boxed key and a list of boxed destinations
+ * for every transition. The heavy algorithms (cross product, subset construction, minimization, ...) work on
+ * this table instead, and only turn their final result back into d.<br>
+ * Transitions are kept in a CSR-style layout: <br>
+ * -the edges of state q are rowStart[q],...,rowStart[q+1]-1. Edges of a state are sorted by their letters. <br>
+ * -edge e reads the (encoded) letter letter[e]. <br>
+ * -the destinations of edge e are targets[targetStart[e]],...,targets[targetStart[e+1]-1]. <br>
+ * When the automaton is deterministic, and the table is not too sparse, we also keep a dense table:
+ * dense[q*alphabetSize+x] is the destination of q on x, or -1 when there is no such transition.
+ */
+class TransitionTable {
+	/**
+	 * We only build the dense table when it has at most this many entries, or when at least
+	 * a quarter of its entries are actual transitions.
+	 */
+	static final int DENSE_LIMIT = 1 << 16;
+
+	int Q;
+	int alphabetSize;
+	int[] rowStart;
+	int[] letter;
+	int[] targetStart;
+	int[] targets;
+	int[] O;
+	boolean deterministic;
+	int[] dense;
+
+	TransitionTable(int Q, int alphabetSize, int[] rowStart, int[] letter, int[] targetStart, int[] targets, int[] O) {
+		this.Q = Q;
+		this.alphabetSize = alphabetSize;
+		this.rowStart = rowStart;
+		this.letter = letter;
+		this.targetStart = targetStart;
+		this.targets = targets;
+		this.O = O;
+		deterministic = true;
+		int edges = rowStart[Q];
+		for(int e = 0; e < edges; e++) {
+			if(targetStart[e+1] - targetStart[e] > 1) {
+				deterministic = false;
+				break;
+			}
+		}
+		if(deterministic) {
+			long size = (long)Q * alphabetSize;
+			if(size <= DENSE_LIMIT || (size <= Integer.MAX_VALUE && size <= 4L * edges)) {
+				dense = new int[(int)size];
+				Arrays.fill(dense, -1);
+				for(int q = 0; q < Q; q++) {
+					for(int e = rowStart[q]; e < rowStart[q+1]; e++) {
+						if(targetStart[e] < targetStart[e+1]) {
+							dense[q * alphabetSize + letter[e]] = targets[targetStart[e]];
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Takes a snapshot of the first Q states of the transition function d and the outputs O of an automaton.
+	 * @throws Exception if d has a transition on a letter that is not below alphabetSize, for example because
+	 * the alphabetSize of the automaton was not set.
+	 */
+	TransitionTable(int Q, List<TreeMap<Integer,List<Integer>>> d, List<Integer> O, int alphabetSize) throws Exception {
+		this(Q, checkedAlphabetSize(Q, d, alphabetSize), rows(Q, d), letters(Q, d), targetStarts(Q, d), targets(Q, d), outputs(Q, O));
+	}
+
+	private static int checkedAlphabetSize(int Q, List<TreeMap<Integer,List<Integer>>> d, int alphabetSize) throws Exception {
+		for(int q = 0; q < Q; q++) {
+			if(d.get(q).isEmpty()) continue;
+			if(d.get(q).firstKey() < 0 || d.get(q).lastKey() >= alphabetSize)
+				throw new Exception("state " + q + " has a transition on a letter outside of the alphabet of size " + alphabetSize);
+		}
+		return alphabetSize;
+	}
+
+	private static int[] rows(int Q, List<TreeMap<Integer,List<Integer>>> d) {
+		int[] rowStart = new int[Q+1];
+		for(int q = 0; q < Q; q++) {
+			rowStart[q+1] = rowStart[q] + d.get(q).size();
+		}
+		return rowStart;
+	}
+
+	private static int[] letters(int Q, List<TreeMap<Integer,List<Integer>>> d) {
+		int edges = 0;
+		for(int q = 0; q < Q; q++) edges += d.get(q).size();
+		int[] letter = new int[edges];
+		int e = 0;
+		for(int q = 0; q < Q; q++) {
+			for(int x:d.get(q).keySet()) {
+				letter[e++] = x;
+			}
+		}
+		return letter;
+	}
+
+	private static int[] targetStarts(int Q, List<TreeMap<Integer,List<Integer>>> d) {
+		int edges = 0;
+		for(int q = 0; q < Q; q++) edges += d.get(q).size();
+		int[] targetStart = new int[edges+1];
+		int e = 0;
+		for(int q = 0; q < Q; q++) {
+			for(List<Integer> dest:d.get(q).values()) {
+				targetStart[e+1] = targetStart[e] + dest.size();
+				e++;
+			}
+		}
+		return targetStart;
+	}
+
+	private static int[] targets(int Q, List<TreeMap<Integer,List<Integer>>> d) {
+		int size = 0;
+		for(int q = 0; q < Q; q++) {
+			for(List<Integer> dest:d.get(q).values()) size += dest.size();
+		}
+		int[] targets = new int[size];
+		int i = 0;
+		for(int q = 0; q < Q; q++) {
+			for(List<Integer> dest:d.get(q).values()) {
+				for(int p:dest) targets[i++] = p;
+			}
+		}
+		return targets;
+	}
+
+	private static int[] outputs(int Q, List<Integer> O) {
+		int[] result = new int[Q];
+		for(int q = 0; q < Q; q++) result[q] = O.get(q);
+		return result;
+	}
+
+	/**
+	 * @return the number of (state,letter) pairs that have at least one destination.
+	 */
+	int numberOfEdges() {
+		return rowStart[Q];
+	}
+
+	/**
+	 * @return the number of (state,letter,destination) triples.
+	 */
+	int numberOfTransitions() {
+		return targets.length;
+	}
+
+	/**
+	 * Only to be used on deterministic tables.
+	 * @return the destination of q on x, or -1 when there is no transition.
+	 */
+	int successor(int q, int x) {
+		if(dense != null) return dense[q * alphabetSize + x];
+		int lo = rowStart[q], hi = rowStart[q+1] - 1;
+		while(lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if(letter[mid] < x) lo = mid + 1;
+			else if(letter[mid] > x) hi = mid - 1;
+			else return targetStart[mid] < targetStart[mid+1] ? targets[targetStart[mid]] : -1;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return R such that R[q] is true iff a state p with target[p] = true is reachable from q (including q itself).
+	 */
+	boolean[] canReach(boolean[] target) {
+		/**the reverse of the transition graph, in the same CSR layout: the predecessors of q are
+		 * predecessors[predecessorStart[q]],...,predecessors[predecessorStart[q+1]-1]*/
+		int[] predecessorStart = new int[Q+1];
+		for(int i = 0; i < targets.length; i++) predecessorStart[targets[i]+1]++;
+		for(int q = 0; q < Q; q++) predecessorStart[q+1] += predecessorStart[q];
+		int[] predecessors = new int[targets.length], next = Arrays.copyOf(predecessorStart, Q);
+		for(int q = 0; q < Q; q++) {
+			for(int i = targetStart[rowStart[q]]; i < targetStart[rowStart[q+1]]; i++) {
+				predecessors[next[targets[i]]++] = q;
+			}
+		}
+		boolean[] result = new boolean[Q];
+		int[] queue = new int[Q];
+		int head = 0, tail = 0;
+		for(int q = 0; q < Q; q++) {
+			if(target[q]) {
+				result[q] = true;
+				queue[tail++] = q;
+			}
+		}
+		while(head < tail) {
+			int q = queue[head++];
+			for(int i = predecessorStart[q]; i < predecessorStart[q+1]; i++) {
+				int p = predecessors[i];
+				if(!result[p]) {
+					result[p] = true;
+					queue[tail++] = p;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return R such that R[q] is true iff no final state (a state with non-zero output) is reachable from q.
+	 */
+	boolean[] deadStates() {
+		boolean[] accepting = new boolean[Q];
+		for(int q = 0; q < Q; q++) accepting[q] = O[q] != 0;
+		boolean[] result = canReach(accepting);
+		for(int q = 0; q < Q; q++) result[q] = !result[q];
+		return result;
+	}
+
+	/**
+	 * @return R such that R[q] is true iff every state reachable from q is final and has a transition on every letter,
+	 * i.e., every word is accepted from q.
+	 */
+	boolean[] fullStates() {
+		boolean[] bad = new boolean[Q];
+		for(int q = 0; q < Q; q++) {
+			int defined = 0;
+			for(int e = rowStart[q]; e < rowStart[q+1]; e++) {
+				if(targetStart[e] < targetStart[e+1]) defined++;
+			}
+			bad[q] = O[q] == 0 || defined < alphabetSize;
+		}
+		boolean[] result = canReach(bad);
+		for(int q = 0; q < Q; q++) result[q] = !result[q];
+		return result;
+	}
+
+	/**
+	 * @return true if every state is reachable from the initial state.
+	 */
+	boolean allReachableFrom(int initial) {
+		boolean[] reached = new boolean[Q];
+		int[] queue = new int[Q];
+		int head = 0, tail = 0;
+		reached[initial] = true;
+		queue[tail++] = initial;
+		while(head < tail) {
+			int q = queue[head++];
+			for(int i = targetStart[rowStart[q]]; i < targetStart[rowStart[q+1]]; i++) {
+				if(!reached[targets[i]]) {
+					reached[targets[i]] = true;
+					queue[tail++] = targets[i];
+				}
+			}
+		}
+		return tail == Q;
+	}
+
+	/**
+	 * Searches for a final state (a state with non-zero output) by a breadth-first search from initial.
+	 * @return a shortest word, as a sequence of encoded letters, that leads from initial to a final state,
+	 * or null when no final state is reachable.
+	 */
+	int[] acceptedWord(int initial) {
+		/**state p was reached from state from[p] by the letter by[p]*/
+		int[] from = new int[Q], by = new int[Q], queue = new int[Q];
+		Arrays.fill(from, -2);
+		int head = 0, tail = 0;
+		from[initial] = -1;
+		queue[tail++] = initial;
+		while(head < tail) {
+			int q = queue[head++];
+			if(O[q] != 0) {
+				int length = 0;
+				for(int p = q; from[p] != -1; p = from[p]) length++;
+				int[] word = new int[length];
+				for(int p = q; from[p] != -1; p = from[p]) word[--length] = by[p];
+				return word;
+			}
+			for(int e = rowStart[q]; e < rowStart[q+1]; e++) {
+				for(int i = targetStart[e]; i < targetStart[e+1]; i++) {
+					int p = targets[i];
+					if(from[p] == -2) {
+						from[p] = q;
+						by[p] = letter[e];
+						queue[tail++] = p;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return this table with a new state Q, which has the transitions of all the states of initial together, and
+	 * which is final iff one of them is. Starting from state Q accepts the union of the languages of the states of
+	 * initial, without determinizing.
+	 */
+	TransitionTable withInitialSet(boolean[] initial) {
+		Builder builder = new Builder(alphabetSize);
+		for(int q = 0; q < Q; q++) {
+			builder.beginState(O[q]);
+			for(int e = rowStart[q]; e < rowStart[q+1]; e++) {
+				builder.addEdge(letter[e]);
+				for(int i = targetStart[e]; i < targetStart[e+1]; i++) builder.addTarget(targets[i]);
+			}
+		}
+		int output = 0, n = 0;
+		for(int q = 0; q < Q; q++) {
+			if(!initial[q]) continue;
+			if(O[q] != 0) output = 1;
+			n += targetStart[rowStart[q+1]] - targetStart[rowStart[q]];
+		}
+		/**the transitions of the new state, as (letter << 32 | target)*/
+		long[] transitions = new long[n];
+		n = 0;
+		for(int q = 0; q < Q; q++) {
+			if(!initial[q]) continue;
+			for(int e = rowStart[q]; e < rowStart[q+1]; e++) {
+				for(int i = targetStart[e]; i < targetStart[e+1]; i++) transitions[n++] = ((long)letter[e] << 32) | targets[i];
+			}
+		}
+		Arrays.sort(transitions);
+		builder.beginState(output);
+		for(int i = 0; i < n; i++) {
+			if(i > 0 && transitions[i] == transitions[i-1]) continue;
+			int x = (int)(transitions[i] >>> 32);
+			if(i == 0 || x != (int)(transitions[i-1] >>> 32)) builder.addEdge(x);
+			builder.addTarget((int)transitions[i]);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Only to be used on deterministic tables.
+	 * @return the complement of this table: outputs are flipped, and missing transitions go to a new final state
+	 * that loops on every letter. The new state is only added when some transition is missing.
+	 */
+	TransitionTable complement() {
+		boolean total = true;
+		for(int q = 0; q < Q && total; q++) {
+			if(rowStart[q+1] - rowStart[q] != alphabetSize) total = false;
+			for(int e = rowStart[q]; e < rowStart[q+1]; e++) {
+				if(targetStart[e] == targetStart[e+1]) total = false;
+			}
+		}
+		Builder builder = new Builder(alphabetSize);
+		for(int q = 0; q < Q; q++) {
+			builder.beginState(O[q] != 0 ? 0 : 1);
+			for(int x = 0, e = rowStart[q]; x < alphabetSize; x++) {
+				while(e < rowStart[q+1] && letter[e] < x) e++;
+				builder.addEdge(x);
+				if(e < rowStart[q+1] && letter[e] == x && targetStart[e] < targetStart[e+1]) {
+					builder.addTarget(targets[targetStart[e]]);
+				}
+				else {
+					builder.addTarget(Q);
+				}
+			}
+		}
+		if(!total) {
+			builder.beginState(1);
+			for(int x = 0; x < alphabetSize; x++) {
+				builder.addEdge(x);
+				builder.addTarget(Q);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Only to be used on deterministic tables.
+	 * @return the part of this table that is reachable from initial, with states renumbered in breadth-first order
+	 * (visiting the letters of a state in increasing order), so that initial becomes 0. This is what the subset
+	 * construction returns on a deterministic table, without hashing any sets. States keep their outputs, so this
+	 * can also be used on the table of a word automaton.
+	 */
+	TransitionTable reachablePart(int initial) {
+		int[] newId = new int[Q], order = new int[Q];
+		Arrays.fill(newId, -1);
+		int n = 0;
+		newId[initial] = n;
+		order[n++] = initial;
+		Builder builder = new Builder(alphabetSize);
+		for(int i = 0; i < n; i++) {
+			int q = order[i];
+			builder.beginState(O[q]);
+			for(int e = rowStart[q]; e < rowStart[q+1]; e++) {
+				if(targetStart[e] == targetStart[e+1]) continue;
+				int p = targets[targetStart[e]];
+				if(newId[p] == -1) {
+					newId[p] = n;
+					order[n++] = p;
+				}
+				builder.addEdge(letter[e]);
+				builder.addTarget(newId[p]);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @param outputs the outputs of the states of the result
+	 * @return the table with the same states, and a transition from p to q on x iff this table goes from q to p on x.
+	 */
+	TransitionTable reverse(int[] outputs) {
+		int n = numberOfTransitions();
+		/**the transitions into p are keys[start[p]],...,keys[start[p+1]-1], as (letter << 32 | source)*/
+		int[] start = new int[Q+1];
+		for(int i = 0; i < n; i++) start[targets[i]+1]++;
+		for(int p = 0; p < Q; p++) start[p+1] += start[p];
+		int[] position = Arrays.copyOf(start, Q);
+		long[] keys = new long[n];
+		for(int q = 0; q < Q; q++) {
+			for(int e = rowStart[q]; e < rowStart[q+1]; e++) {
+				for(int i = targetStart[e]; i < targetStart[e+1]; i++) {
+					keys[position[targets[i]]++] = ((long)letter[e] << 32) | q;
+				}
+			}
+		}
+		Builder builder = new Builder(alphabetSize);
+		for(int p = 0; p < Q; p++) {
+			builder.beginState(outputs[p]);
+			Arrays.sort(keys, start[p], start[p+1]);
+			for(int i = start[p]; i < start[p+1]; i++) {
+				int x = (int)(keys[i] >>> 32);
+				if(i == start[p] || (int)(keys[i-1] >>> 32) != x) builder.addEdge(x);
+				builder.addTarget((int)keys[i]);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return the transition function of this table in the format of Automaton.d
+	 */
+	List<TreeMap<Integer,List<Integer>>> toTransitionFunction() {
+		List<TreeMap<Integer,List<Integer>>> d = new ArrayList<TreeMap<Integer,List<Integer>>>(Q);
+		for(int q = 0; q < Q; q++) {
+			TreeMap<Integer,List<Integer>> row = new TreeMap<Integer,List<Integer>>();
+			for(int e = rowStart[q]; e < rowStart[q+1]; e++) {
+				List<Integer> dest = new ArrayList<Integer>(targetStart[e+1] - targetStart[e]);
+				for(int i = targetStart[e]; i < targetStart[e+1]; i++) {
+					dest.add(targets[i]);
+				}
+				row.put(letter[e], dest);
+			}
+			d.add(row);
+		}
+		return d;
+	}
+
+	/**
+	 * @return the outputs of this table in the format of Automaton.O
+	 */
+	List<Integer> toOutputs() {
+		List<Integer> result = new ArrayList<Integer>(Q);
+		for(int q = 0; q < Q; q++) result.add(O[q]);
+		return result;
+	}
+
+	/**
+	 * Used to build a table state by state, in increasing order of states.
+	 * For every state, we first call beginState, then addEdge for each of its letters in increasing order,
+	 * each followed by addTarget for each of the destinations.
+	 */
+	static class Builder {
+		int alphabetSize;
+		int Q = 0;
+		int edges = 0;
+		int size = 0;
+		int[] rowStart = new int[16];
+		int[] letter = new int[16];
+		int[] targetStart = new int[16];
+		int[] targets = new int[16];
+		int[] O = new int[16];
+
+		Builder(int alphabetSize) {
+			this.alphabetSize = alphabetSize;
+		}
+
+		void beginState(int output) {
+			if(Q + 1 >= rowStart.length) {
+				rowStart = Arrays.copyOf(rowStart, 2 * rowStart.length);
+				O = Arrays.copyOf(O, 2 * O.length);
+			}
+			O[Q] = output;
+			rowStart[Q] = edges;
+			Q++;
+			rowStart[Q] = edges;
+		}
+
+		void addEdge(int x) {
+			if(edges + 1 >= letter.length) {
+				letter = Arrays.copyOf(letter, 2 * letter.length);
+				targetStart = Arrays.copyOf(targetStart, 2 * targetStart.length);
+			}
+			letter[edges] = x;
+			targetStart[edges] = size;
+			edges++;
+			targetStart[edges] = size;
+			rowStart[Q] = edges;
+		}
+
+		void addTarget(int p) {
+			if(size == targets.length) {
+				targets = Arrays.copyOf(targets, 2 * targets.length);
+			}
+			targets[size++] = p;
+			targetStart[edges] = size;
+		}
+
+		/**
+		 * Sets the output of a state that has already been started.
+		 */
+		void setOutput(int q, int output) {
+			O[q] = output;
+		}
+
+		TransitionTable build() {
+			return new TransitionTable(
+				Q, alphabetSize,
+				Arrays.copyOf(rowStart, Q+1),
+				Arrays.copyOf(letter, edges),
+				Arrays.copyOf(targetStart, edges+1),
+				Arrays.copyOf(targets, size),
+				Arrays.copyOf(O, Q));
+		}
+	}
+}
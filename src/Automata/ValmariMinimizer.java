@@ -0,0 +1,254 @@
+package Automata;
+
+import java.util.Arrays;
+
+/**
+ * Valmari's minimization algorithm for deterministic automata (A. Valmari, "Fast brief practical DFA minimization").
+ * It is the default MinimizationEngine.<br>
+ * All the state of the algorithm is kept in the instance, so different instances can run at the same time.
+ * An instance can be reused: its arrays are only reallocated when an automaton needs larger ones.
+ */
+class ValmariMinimizer implements MinimizationEngine {
+	/**
+	 * We sort transitions by label with a counting sort, unless there are much more labels than transitions.
+	 */
+	static final int COUNTING_SORT_FACTOR = 4;
+
+	// blocks (consist of states)
+	Partition B = new Partition();
+	// cords (consist of transitions)
+	Partition C = new Partition();
+
+	// number of states
+	int num_states;
+	// number of transitions
+	int num_transitions;
+	// number of final states
+	int num_finalstates;
+
+	// tails of transitions
+	int[] T = new int[0];
+	// labels of transitions
+	int[] L = new int[0];
+	// heads of transitions
+	int[] H = new int[0];
+
+	/* Adjacent transitions */
+	int[] _A = new int[0], _F = new int[0];
+
+	/* buffer of the counting sort */
+	int[] count = new int[0];
+
+	/* the initial state of the result of minimize */
+	int initial_state;
+
+	void make_adjacent( int K[] ){
+		int q, t;
+		for( q = 0; q <= num_states; ++q ){
+			_F[q] = 0;
+		}
+		for( t = 0; t < num_transitions; ++t ){
+			++_F[K[t]];
+		}
+		for( q = 0; q < num_states; ++q ){
+			_F[q+1] += _F[q];
+		}
+		for( t = num_transitions; t-- != 0; ){
+			_A[--_F[K[t]]] = t;
+		}
+	}
+
+	/* Removal of irrelevant parts */
+	int rr = 0;   // number of reached states
+
+	void reach( int q ){
+		int i = B.L[q];
+		if( i >= rr ){
+			B.E[i] = B.E[rr]; B.L[B.E[i]] = i;
+			B.E[rr] = q; B.L[q] = rr++;
+		}
+	}
+
+	void rem_unreachable( int T[], int H[] ){
+		make_adjacent( T ); int i, j;
+		for( i = 0; i < rr; ++i ){
+			for( j = _F[B.E[i]]; j < _F[B.E[i] + 1]; ++j ){
+				reach( H[_A[j]] );
+			}
+		}
+		j = 0;
+		for( int t = 0; t < num_transitions; ++t ){
+			if( B.L[T[t]] < rr ){
+				H[j] = H[t]; L[j] = L[t];
+				T[j] = T[t]; ++j;
+			}
+		}
+		num_transitions = j; B.P[0] = rr; rr = 0;
+	}
+
+	/**
+	 * Sorts C.E[0],...,C.E[num_transitions-1], which are the transitions in increasing order, by their labels.
+	 * The sort is stable, so transitions with the same label stay in increasing order.
+	 */
+	void sort_by_label( int alphabetSize ){
+		if( alphabetSize <= COUNTING_SORT_FACTOR * (long)num_transitions ){
+			if( count.length < alphabetSize + 1 ) count = new int[alphabetSize + 1];
+			Arrays.fill( count, 0, alphabetSize + 1, 0 );
+			for( int t = 0; t < num_transitions; ++t ){
+				++count[L[t] + 1];
+			}
+			for( int a = 0; a < alphabetSize; ++a ){
+				count[a+1] += count[a];
+			}
+			for( int t = 0; t < num_transitions; ++t ){
+				C.E[count[L[t]]++] = t;
+			}
+		}
+		else{
+			long[] keys = new long[num_transitions];
+			for( int t = 0; t < num_transitions; ++t ){
+				keys[t] = ((long)L[t] << 32) | t;
+			}
+			Arrays.sort( keys );
+			for( int i = 0; i < num_transitions; ++i ){
+				C.E[i] = (int)keys[i];
+			}
+		}
+		for( int i = 0; i < num_transitions; ++i ){
+			C.L[C.E[i]] = i;
+		}
+	}
+
+	public TransitionTable minimize( TransitionTable dfa, int q0 ){
+		return minimize( dfa, q0, false );
+	}
+
+	/**
+	 * Moore-style minimization of a deterministic automaton with output (DFAO), such as a word automaton.
+	 * Two states are equivalent iff they have the same output on every input, so the initial partition is split by
+	 * output value, and states from which only the output 0 is reachable are kept. A missing transition is
+	 * different from every transition. As with minimize, all the states of dfao should be reachable from q0.
+	 */
+	TransitionTable minimizeWithOutputs( TransitionTable dfao, int q0 ){
+		return minimize( dfao, q0, true );
+	}
+
+	/* Splits the only block into blocks of states with the same output */
+	void split_by_output( int O[] ){
+		long[] keys = new long[num_states];
+		for( int q = 0; q < num_states; ++q ){
+			keys[q] = ((long)O[q] << 32) | q;
+		}
+		Arrays.sort( keys );
+		int i = 0;
+		while( i < num_states ){
+			int o = (int)(keys[i] >> 32), j = i;
+			while( j < num_states && (int)(keys[j] >> 32) == o ) ++j;
+			if( j == num_states ) break;
+			for( ; i < j; ++i ){
+				B.mark( (int)keys[i] );
+			}
+			B.split();
+		}
+	}
+
+	TransitionTable minimize( TransitionTable dfa, int q0, boolean withOutputs ){
+		num_states = dfa.Q;
+		num_transitions = dfa.numberOfTransitions();
+		if( T.length < num_transitions ){
+			T = new int[num_transitions];
+			L = new int[num_transitions];
+			H = new int[num_transitions];
+			_A = new int[num_transitions];
+		}
+		if( _F.length < num_states+1 ) _F = new int[num_states+1];
+		for( int q = 0, t = 0; q != num_states; ++q ){
+			for( int e = dfa.rowStart[q]; e < dfa.rowStart[q+1]; e++ ){
+				for( int i = dfa.targetStart[e]; i < dfa.targetStart[e+1]; i++ ){
+					H[t] = dfa.targets[i];
+					T[t] = q;
+					L[t] = dfa.letter[e];
+					t++;
+				}
+			}
+		}
+		B.init( num_states );
+		rr = 0;
+
+		int relevant = num_states;
+		if( withOutputs ){
+			/* Make initial partition */
+			split_by_output( dfa.O );
+		}
+		else{
+			for( int q = 0; q < num_states; ++q ){
+				if( dfa.O[q] != 0 ){
+					reach( q );
+				}
+			}
+			num_finalstates = rr; rem_unreachable( H, T );
+			/* the states from which a final state is reachable are B.E[0],...,B.E[relevant-1] */
+			relevant = B.P[0];
+
+			/* Make initial partition */
+			B.M[0] = num_finalstates;
+			if( num_finalstates != 0 ){ B.W[B.w++] = 0; B.split(); }
+		}
+
+		/* Make transition partition */
+		C.init( num_transitions );
+		if( num_transitions != 0 ){
+			sort_by_label( dfa.alphabetSize );
+			C.z = 0; int a = L[C.E[0]];
+			for( int i = 0; i < num_transitions; ++i ){
+				int t = C.E[i];
+				if( L[t] != a ){
+					a = L[t]; C.P[C.z++] = i;
+					C.F[C.z] = i;
+				}
+				C.S[t] = C.z;
+			}
+			C.P[C.z++] = num_transitions;
+		}
+
+		/* Split blocks and cords. With outputs, there is no block of removed states to stand for the missing
+		 * transitions, so every block has to split the cords. */
+		make_adjacent( H );
+		int b = withOutputs ? 0 : 1, c = 0;
+		while( c < C.z ){
+			for( int i = C.F[c]; i < C.P[c]; ++i ){
+				B.mark( T[C.E[i]] );
+			}
+			B.split(); ++c;
+			while( b < B.z ){
+				for( int i = B.F[b]; i < B.P[b]; ++i ){
+					for( int j = _F[B.E[i]]; j < _F[B.E[i]+1]; ++j ){
+						C.mark( _A[j] );
+					}
+				}
+				C.split(); ++b;
+			}
+		}
+
+		/* Build the minimized automaton: block q behaves like its first state B.E[B.F[q]] */
+		TransitionTable.Builder builder = new TransitionTable.Builder( dfa.alphabetSize );
+		for( int q = 0; q < B.z; ++q ){
+			if( B.F[q] == B.P[q] ){ builder.beginState( 0 ); continue; }
+			int r = B.E[B.F[q]];
+			builder.beginState( withOutputs ? dfa.O[r] : B.F[q] < num_finalstates ? 1 : 0 );
+			for( int e = dfa.rowStart[r]; e < dfa.rowStart[r+1]; e++ ){
+				if( dfa.targetStart[e] == dfa.targetStart[e+1] ) continue;
+				int p = dfa.targets[dfa.targetStart[e]];
+				if( B.L[p] >= relevant ) continue;
+				builder.addEdge( dfa.letter[e] );
+				builder.addTarget( B.S[p] );
+			}
+		}
+		initial_state = B.S[q0];
+		return builder.build();
+	}
+
+	public int initialState(){
+		return initial_state;
+	}
+}
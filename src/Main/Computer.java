@@ -21,10 +21,16 @@ package Main;
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Stack;
 
 import Automata.Automaton;
+import Token.LogicalOperator;
 import Token.Token;
 
 
@@ -38,6 +44,54 @@ public class Computer {
 	String mpl;
 	boolean printSteps;
 	boolean printDetails;
+	/**
+	 * Conjunction chains like a&b&c&d are not computed one & at a time. Instead, the result of & is pushed as
+	 * a pending expression (with M = null), and the automata of the whole chain are kept here. The chain is computed
+	 * in one simultaneous product, by Automaton.and(List), when its value is needed by some other token.
+	 */
+	IdentityHashMap<Expression,Conjunction> pending;
+	/**
+	 * Likewise, a=>b is kept pending, since A over an implication is decided by an inclusion check, see decideSentence.
+	 * Its premise and conclusion can be pending conjunction chains themselves.
+	 */
+	IdentityHashMap<Expression,Implication> implications;
+	/**
+	 * When true, a quantifier that binds every free variable of its operand is decided without building the automaton
+	 * of the operand, see decideSentence. See setLazySentences.
+	 */
+	private static volatile boolean lazySentences = true;
+
+	private static class Conjunction {
+		List<Automaton> operands = new ArrayList<Automaton>();
+		/**the prefix of the last & of the chain*/
+		String prefix;
+		/**a&b, where a and b are the operands of the last & of the chain*/
+		String expression;
+		/**the position of the last & of the chain in the predicate*/
+		int position;
+	}
+
+	private static class Implication {
+		Expression premise, conclusion;
+		/**the prefix of =>*/
+		String prefix;
+		/**the position of => in the predicate*/
+		int position;
+	}
+
+	/**
+	 * Selects how closed formulas are decided: lazily, by looking for a witness (or a counterexample) in the product of
+	 * the automata that the last quantifier binds, or eagerly, by building, minimizing and quantifying that product.
+	 * Both give the same results.
+	 */
+	public static void setLazySentences(boolean lazy) {
+		lazySentences = lazy;
+	}
+
+	public static boolean isLazySentences() {
+		return lazySentences;
+	}
+
 	public Computer(String predicate, boolean printSteps, boolean printDetails) throws Exception {
 		this.log = new StringBuffer();
 		this.log_details = new StringBuffer();
@@ -104,7 +158,27 @@ public class Computer {
 		String prefix = "";
 		long timeBeginning = System.currentTimeMillis();
 		String step,preStep;
+		pending = new IdentityHashMap<Expression,Conjunction>();
+		implications = new IdentityHashMap<Expression,Implication>();
+		int position = 0;
 		for(Token t:postOrder) {
+			position = t.getPositionInPredicate();
+			// pending expressions report the position of their own operator when they fail, see materialize
+			if(deferConjunction(t, expression_Stack, prefix)) {
+				prefix += " ";
+				continue;
+			}
+			if(deferImplication(t, expression_Stack, prefix)) {
+				prefix += " ";
+				continue;
+			}
+			if(decideSentence(t, expression_Stack, prefix)) {
+				prefix += " ";
+				continue;
+			}
+			for(int i = 0; i < t.getArity() && i < expression_Stack.size(); i++) {
+				materialize(expression_Stack.get(expression_Stack.size() - 1 - i));
+			}
 			try{
 				long timeBefore = System.currentTimeMillis();
 				String operands = "";
@@ -122,10 +196,19 @@ public class Computer {
 					prefix += " ";
 				}
 			} catch(Exception e) {
-				e.printStackTrace();
-				String message = e.getMessage();
-				message += UtilityMethods.newLine() + "\t: char at " + t.getPositionInPredicate();
-				throw new Exception(message);
+				throw at(e, position);
+			}
+		}
+
+		for(int i = 0; i < expression_Stack.size(); i++) {
+			materialize(expression_Stack.get(i));
+			// the results that are written or drawn are deterministic, see Automaton.setLazyDeterminization
+			if(expression_Stack.get(i).is(Type.automaton)) {
+				try{
+					expression_Stack.get(i).M.determinize(printDetails, prefix, log_details);
+				} catch(Exception e) {
+					throw at(e, position);
+				}
 			}
 		}
 
@@ -162,4 +245,269 @@ public class Computer {
 			}
 		}
 	}
+
+	/**
+	 * @return an exception whose message is the message of e followed by the position in the predicate of the
+	 * operator that failed.
+	 */
+	private static Exception at(Exception e, int position) {
+		e.printStackTrace();
+		String message = e.getMessage();
+		message += UtilityMethods.newLine() + "\t: char at " + position;
+		return new Exception(message);
+	}
+
+	/**
+	 * If t is & and its two operands are automata, pushes the pending expression (a&b) instead of computing it.
+	 * @return true if t was deferred.
+	 */
+	private boolean deferConjunction(Token t, Stack<Expression> S, String prefix) throws Exception {
+		if(!(t instanceof LogicalOperator) || !t.toString().equals("&") || S.size() < 2) return false;
+		Expression b = S.get(S.size() - 1), a = S.get(S.size() - 2);
+		if(!a.is(Type.automaton) || !b.is(Type.automaton)) return false;
+		if(implications.containsKey(a)) materialize(a);
+		if(implications.containsKey(b)) materialize(b);
+		S.pop();
+		S.pop();
+		Conjunction conjunction = new Conjunction();
+		for(Expression operand:new Expression[]{a,b}) {
+			if(pending.containsKey(operand)) {
+				conjunction.operands.addAll(pending.remove(operand).operands);
+			}
+			else {
+				conjunction.operands.add(operand.M);
+			}
+		}
+		conjunction.prefix = prefix;
+		conjunction.position = t.getPositionInPredicate();
+		conjunction.expression = a + "&" + b;
+		Expression result = new Expression("(" + a + "&" + b + ")", (Automaton)null);
+		pending.put(result, conjunction);
+		S.push(result);
+		return true;
+	}
+
+	/**
+	 * If t is => and its two operands are automata, pushes the pending expression (a=>b) instead of computing it.
+	 * This is only done when sentences are decided lazily.
+	 * @return true if t was deferred.
+	 */
+	private boolean deferImplication(Token t, Stack<Expression> S, String prefix) throws Exception {
+		if(!lazySentences || !(t instanceof LogicalOperator) || !t.toString().equals("=>") || S.size() < 2) return false;
+		Expression b = S.get(S.size() - 1), a = S.get(S.size() - 2);
+		if(!a.is(Type.automaton) || !b.is(Type.automaton)) return false;
+		if(implications.containsKey(a)) materialize(a);
+		if(implications.containsKey(b)) materialize(b);
+		S.pop();
+		S.pop();
+		Implication implication = new Implication();
+		implication.premise = a;
+		implication.conclusion = b;
+		implication.prefix = prefix;
+		implication.position = t.getPositionInPredicate();
+		Expression result = new Expression("(" + a + "=>" + b + ")", (Automaton)null);
+		implications.put(result, implication);
+		S.push(result);
+		return true;
+	}
+
+	/**
+	 * @return the automata of the conjunction chain e, or of e itself if it is not a pending chain.
+	 */
+	private List<Automaton> conjunctsOf(Expression e) {
+		return pending.containsKey(e) ? pending.get(e).operands : Collections.singletonList(e.M);
+	}
+
+	/**
+	 * @return true if two inputs of automata with the same label have different alphabets, so that their product
+	 * cannot be computed.
+	 */
+	private static boolean haveConflictingInputs(List<Automaton> automata) {
+		HashMap<String,List<Integer>> alphabets = new HashMap<String,List<Integer>>();
+		for(Automaton M:automata) {
+			for(int j = 0; j < M.A.size(); j++) {
+				List<Integer> alphabet = alphabets.put(M.label.get(j), M.A.get(j));
+				if(alphabet != null && !UtilityMethods.areEqual(alphabet, M.A.get(j))) return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * If t is E or A, and its variables are all the free variables of the automaton on top of S (or of the
+	 * automata of a pending conjunction chain or implication), decides the resulting sentence without computing the
+	 * automaton: E looks for a word accepted by the product of the automata, and A for a valid word that one of them
+	 * rejects, or that the premise of the implication accepts and its conclusion rejects, see
+	 * Automaton.acceptedWord(List, List) and Automaton.rejectedWord(List, List, List). Both stop at the first word
+	 * they find, which is reported as the witness, or the counterexample, of the sentence.
+	 * @return true if t was decided this way.
+	 */
+	private boolean decideSentence(Token t, Stack<Expression> S, String prefix) throws Exception {
+		if(!lazySentences || !(t instanceof LogicalOperator) || S.size() < t.getArity()) return false;
+		String op = t.toString();
+		if(!op.equals("E") && !op.equals("A")) return false;
+		Expression a = S.peek();
+		List<Automaton> premises = new ArrayList<Automaton>(), automata;
+		Implication implication = implications.get(a);
+		if(implication != null) {
+			if(op.equals("E")) return false;
+			premises = conjunctsOf(implication.premise);
+			automata = conjunctsOf(implication.conclusion);
+		}
+		else if(a.is(Type.automaton)) {
+			automata = conjunctsOf(a);
+		}
+		else {
+			return false;
+		}
+		HashSet<String> freeVariables = new HashSet<String>();
+		List<Automaton> all = new ArrayList<Automaton>(premises);
+		all.addAll(automata);
+		for(Automaton M:all) {
+			if(M.TRUE_FALSE_AUTOMATON || M.label == null || M.label.size() != M.A.size()) return false;
+			freeVariables.addAll(M.label);
+		}
+		String stringValue = "(" + op + " ";
+		HashSet<String> variables = new HashSet<String>();
+		for(int i = 0; i < t.getArity() - 1; i++) {
+			Expression v = S.get(S.size() - t.getArity() + i);
+			if(!v.is(Type.variable)) return false;
+			stringValue += (i == 0 ? "" : ", ") + v + " ";
+			variables.add(v.identifier);
+		}
+		if(!variables.equals(freeVariables)) return false;
+		stringValue += a + ")";
+
+		long timeBefore = System.currentTimeMillis();
+		String preStep = prefix + "computing quantifier " + op;
+		log_details.append(preStep + UtilityMethods.newLine());
+		if(printDetails) {
+			System.out.println(preStep);
+		}
+		List<String> labels = new ArrayList<String>();
+		List<List<Integer>> word;
+		try{
+			word = op.equals("E") ?
+				Automaton.acceptedWord(automata, labels) : Automaton.rejectedWord(premises, automata, labels);
+		} catch(Exception e) {
+			// the product that failed is the one of the pending operator, if any, or of a chain under =>
+			int position = t.getPositionInPredicate();
+			if(implication != null) {
+				position = implication.position;
+				if(pending.containsKey(implication.premise) && haveConflictingInputs(premises)) {
+					position = pending.get(implication.premise).position;
+				}
+				else if(pending.containsKey(implication.conclusion) && haveConflictingInputs(automata)) {
+					position = pending.get(implication.conclusion).position;
+				}
+			}
+			else if(pending.containsKey(a)) {
+				position = pending.get(a).position;
+			}
+			throw at(e, position);
+		}
+		String found = prefix + " " + (op.equals("E") ? "witness: " : "counterexample: ");
+		if(word == null) {
+			found += "none";
+		}
+		else {
+			for(int i = 0; i < labels.size(); i++) {
+				List<Integer> digits = new ArrayList<Integer>();
+				for(List<Integer> x:word) digits.add(x.get(i));
+				found += (i == 0 ? "" : ", ") + labels.get(i) + " = " + digits;
+			}
+		}
+		log.append(found + UtilityMethods.newLine());
+		log_details.append(found + UtilityMethods.newLine());
+		if(printSteps || printDetails) {
+			System.out.println(found);
+		}
+		for(int i = 0; i < t.getArity(); i++) {
+			pending.remove(S.pop());
+		}
+		if(implication != null) {
+			implications.remove(a);
+			pending.remove(implication.premise);
+			pending.remove(implication.conclusion);
+		}
+		Expression result = new Expression(stringValue, new Automaton(op.equals("E") ? word != null : word == null));
+		S.push(result);
+		String postStep = prefix + "computed quantifier " + stringValue;
+		log_details.append(postStep + UtilityMethods.newLine());
+		if(printDetails) {
+			System.out.println(postStep);
+		}
+		long timeAfter = System.currentTimeMillis();
+		String step = prefix + result + ":" + result.M.Q + " states - " + (timeAfter-timeBefore) + "ms";
+		log.append(step + UtilityMethods.newLine());
+		log_details.append(step + UtilityMethods.newLine());
+		if(printSteps || printDetails) {
+			System.out.println(step);
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the automaton of e if it is a pending conjunction chain or implication. If that fails, the message of
+	 * the exception ends with the position of the & or => of e, as if it had been computed when it was read.
+	 */
+	private void materialize(Expression e) throws Exception {
+		Implication implication = implications.remove(e);
+		if(implication != null) {
+			materialize(implication.premise);
+			materialize(implication.conclusion);
+			Expression a = implication.premise, b = implication.conclusion;
+			String prefix = implication.prefix;
+			long timeBefore = System.currentTimeMillis();
+			String preStep = prefix + "computing " + a + "=>" + b;
+			log_details.append(preStep + UtilityMethods.newLine());
+			if(printDetails) {
+				System.out.println(preStep);
+			}
+			try{
+				e.M = a.M.imply(b.M, printDetails, prefix + " ", log_details);
+			} catch(Exception ex) {
+				throw at(ex, implication.position);
+			}
+			String postStep = prefix + "computed " + a + "=>" + b;
+			log_details.append(postStep + UtilityMethods.newLine());
+			if(printDetails) {
+				System.out.println(postStep);
+			}
+			long timeAfter = System.currentTimeMillis();
+			String step = prefix + e + ":" + e.M.Q + " states - " + (timeAfter-timeBefore) + "ms";
+			log.append(step + UtilityMethods.newLine());
+			log_details.append(step + UtilityMethods.newLine());
+			if(printSteps || printDetails) {
+				System.out.println(step);
+			}
+			return;
+		}
+		Conjunction conjunction = pending.remove(e);
+		if(conjunction == null) return;
+		String prefix = conjunction.prefix;
+		long timeBefore = System.currentTimeMillis();
+		String preStep = prefix + "computing " + conjunction.expression;
+		log_details.append(preStep + UtilityMethods.newLine());
+		if(printDetails) {
+			System.out.println(preStep);
+		}
+		try{
+			e.M = Automaton.and(conjunction.operands, printDetails, prefix + " ", log_details);
+		} catch(Exception ex) {
+			throw at(ex, conjunction.position);
+		}
+		String postStep = prefix + "computed " + conjunction.expression;
+		log_details.append(postStep + UtilityMethods.newLine());
+		if(printDetails) {
+			System.out.println(postStep);
+		}
+		long timeAfter = System.currentTimeMillis();
+		String step = prefix + e + ":" + e.M.Q + " states - " + (timeAfter-timeBefore) + "ms";
+		log.append(step + UtilityMethods.newLine());
+		log_details.append(step + UtilityMethods.newLine());
+		if(printSteps || printDetails) {
+			System.out.println(step);
+		}
+	}
 }
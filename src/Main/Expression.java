@@ -41,7 +41,9 @@ import Automata.NumberSystem;
  * = is not an arithmetic operator but a comparison operator. An arithmetic expression evaluates to
  * an automaton, stored in the field memeber M, and an identifier, stored in identifier. For example a+b-c*2, evaluates
  * to an automaton with 4 inputs a,b,c,x and it accepts iff x = a+b-c*2. This x is a unique identifier we generate for this expression.
- * As we mentioned earlier, we store the automaton in M and the x in identifier since we need to eliminate x in future.<br>
+ * As we mentioned earlier, we store the automaton in M and the x in identifier since we need to eliminate x in future. In number systems msd_k and lsd_k,
+ * an arithmetic expression with only +,- and multiplication by constants first evaluates to a linear form, stored in linearForm,
+ * and its automaton is computed only when needed.<br>
  * -automaton: automaton is an expression with at least one of reverse, logical, or comparison operator: 
  * &(and),|(or),^(xor),~(not),`(reverse),E(existential quantifier),A(universal quantifier),=,!=,<,>,<=,>=<br>
  * For example a+b > c is an automaton expression, so it `$f(a,b+1). An automaton expression, evaluates to an automaton.
@@ -67,6 +69,11 @@ public class Expression {
 	public NumberSystem base;
 	public Automaton W;
 	public List<String> list_of_identifiers_to_quantify;
+	/**
+	 * The linear form of an arithmetic expression whose automaton is not computed yet, in which case M and identifier
+	 * are null. See Token.materialize.
+	 */
+	public LinearForm linearForm;
 	/**
 	 * Different types: automaton,word,arithmetic,alphabetLetter,variable,numberLiteral
 	 */
@@ -99,6 +106,11 @@ public class Expression {
 		this.identifier = identifier;
 		T = Type.arithmetic;
 	}
+	public Expression(String expressionInString,LinearForm linearForm){
+		this.expressionInString = expressionInString;
+		this.linearForm = linearForm;
+		T = Type.arithmetic;
+	}
 	public Expression(String expressionInString,Automaton W,Automaton M,List<String> quantify){
 		this.expressionInString = expressionInString;
 		this.W = W;
@@ -28,6 +28,7 @@ import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -544,6 +545,31 @@ public class IntegrationTest {
 		L.add("eval test397 \"An n>=3 => ~(Ei $gamard3allconj(i,n))\";");
 		L.add("eval test398 \"Ai WSA[i]=@0 <=> (Ex $power2(x) & (i+2=5*x|i+2=7*x))\";");
 
+		// promote tests
+		L.add("promote test399 gam;");
+
+		// eval tests for a word automaton with an unreachable state and more than two outputs
+		L.add("eval test400 \"ZZ[n]=@3\";");
+		L.add("eval test401 \"ZZ[n]=@1\";");
+
+		// eval tests for linear forms: subtraction, repeated variables, and large coefficients and constants
+		L.add("eval test402 \"?msd_10 x+(y-z)=5\";");
+		L.add("eval test403 \"Ex,y x-y=3 & x<y\";");
+		L.add("eval test404 \"?msd_2 x+x=y\";");
+		L.add("eval test405 \"?msd_2 x-x=y\";");
+		L.add("eval test406 \"Ex,y 65536*x=y+65536 & x<y\";");
+		L.add("eval test407 \"?msd_2 Ex x+2147483647+1=y\";");
+		// the automaton of 4294967296*x=y would have billions of states, so an error is reported instead
+		L.add("eval test408 \"?msd_2 Ex 65536*(65536*x)=y & y=0 & x=1\";");
+
+		// eval tests for errors in pending & chains, which report the position of their &
+		L.add("eval test409 \"((?msd_3 a<5) & (a=3)) | b<2\";");
+		L.add("eval test410 \"(?msd_3 a<5) & (a=3)\";");
+
+		// eval tests for A over an implication whose inputs with the same label have different alphabets
+		L.add("eval test411 \"Aa (?msd_3 a<5) => (a=3)\";");
+		L.add("eval test412 \"Aa (a=3) => ((?msd_3 a<5) & (a<4))\";");
+
 	}
 	public void runPerformanceTest(String name,int numberOfRuns) throws Exception{
 		PrintWriter out = new PrintWriter(new FileOutputStream(new File(directoryAddress+performanceTestFileName), true /* append = true */));
@@ -564,6 +590,101 @@ public class IntegrationTest {
 		out.println("----------------------------------------");
 		out.close();
 	}
+	/**
+	 * Compares the sequential and the parallel cross product (see Automaton.setParallelProduct) on the test cases.
+	 */
+	public void runProductPerformanceTest(int numberOfRuns) throws Exception{
+		boolean parallel = Automaton.isParallelProduct();
+		Automaton.setParallelProduct(false);
+		runPerformanceTest("Walnut with sequential cross product", numberOfRuns);
+		Automaton.setParallelProduct(true);
+		runPerformanceTest("Walnut with parallel cross product", numberOfRuns);
+		Automaton.setParallelProduct(parallel);
+	}
+	/**
+	 * Compares the sequential and the parallel subset construction (see Automaton.setParallelDeterminization) on the test cases.
+	 */
+	public void runDeterminizationPerformanceTest(int numberOfRuns) throws Exception{
+		boolean parallel = Automaton.isParallelDeterminization();
+		Automaton.setParallelDeterminization(false);
+		runPerformanceTest("Walnut with sequential subset construction", numberOfRuns);
+		Automaton.setParallelDeterminization(true);
+		runPerformanceTest("Walnut with parallel subset construction", numberOfRuns);
+		Automaton.setParallelDeterminization(parallel);
+	}
+	/**
+	 * Compares the minimization engines (see Automaton.setMinimizationEngine) on the command files and on the test cases.
+	 */
+	public void runMinimizationPerformanceTest(int numberOfRuns) throws Exception{
+		String engine = Automaton.getMinimizationEngine();
+		for(String name : new String[]{"valmari", "hopcroft", "brzozowski", "auto"}){
+			Automaton.setMinimizationEngine(name);
+			runCommandFilesPerformanceTest("Walnut with " + name + " minimization", numberOfRuns);
+			runPerformanceTest("Walnut with " + name + " minimization", numberOfRuns);
+		}
+		Automaton.setMinimizationEngine(engine);
+	}
+	/**
+	 * Compares the reductions done before subset constructions (see Automaton.setReduction) on the command files and on
+	 * the test cases, together with the number of states they removed, the time they took, and the time they saved in
+	 * the subset constructions that follow them, compared with no reduction. Since no reduction runs first, it also pays
+	 * for warming up the JVM and the caches of number systems, so for precise numbers compare the modes in separate runs.
+	 */
+	public void runReductionPerformanceTest(int numberOfRuns) throws Exception{
+		String reduction = Automaton.getReduction();
+		long unreducedDeterminizationTime = 0;
+		for(String name : new String[]{"none", "bisimulation", "simulation"}){
+			Automaton.setReduction(name);
+			long states = Automaton.getReducedStates(), time = Automaton.getReductionTime();
+			long determinizationTime = Automaton.getReducibleDeterminizationTime();
+			runCommandFilesPerformanceTest("Walnut with " + name + " reduction", numberOfRuns);
+			runPerformanceTest("Walnut with " + name + " reduction", numberOfRuns);
+			determinizationTime = Automaton.getReducibleDeterminizationTime() - determinizationTime;
+			if(name.equals("none")) unreducedDeterminizationTime = determinizationTime;
+			PrintWriter out = new PrintWriter(new FileOutputStream(new File(directoryAddress+performanceTestFileName), true /* append = true */));
+			out.println("states removed by " + name + " reduction: " + (Automaton.getReducedStates() - states));
+			out.println("time spent in " + name + " reduction: " + (Automaton.getReductionTime() - time) + "ms");
+			out.println("time spent in determinization after " + name + " reduction: " + determinizationTime + "ms");
+			out.println("determinization time saved by " + name + " reduction: " + (unreducedDeterminizationTime - determinizationTime) + "ms");
+			out.println("----------------------------------------");
+			out.close();
+		}
+		Automaton.setReduction(reduction);
+	}
+	/**
+	 * Same as runPerformanceTest, but it loads every command file in Command Files instead of running the test cases.
+	 */
+	public void runCommandFilesPerformanceTest(String name,int numberOfRuns) throws Exception{
+		File[] files = new File(UtilityMethods.get_address_for_command_files()).listFiles((dir, fileName) -> fileName.endsWith(".txt"));
+		Arrays.sort(files);
+		long[] runtimes = new long[files.length];
+		PrintWriter out = new PrintWriter(new FileOutputStream(new File(directoryAddress+performanceTestFileName), true /* append = true */));
+		out.println("----------------------------------------");
+		out.println("Performance Test Result for " + name + " on the command files");
+		out.println("Number of runs: " + numberOfRuns);
+		out.println("Number of command files: " + files.length);
+		long total = 0;
+		for(int i=0;i!=numberOfRuns;++i){
+			long runtime = 0;
+			for(int j = 0; j < files.length; j++){
+				long before = System.currentTimeMillis();
+				Prover.dispatch("load " + files[j].getName() + ";");
+				long after = System.currentTimeMillis();
+				runtimes[j] += after - before;
+				runtime += after - before;
+			}
+			out.println((i+1) + "th run: " + runtime + "ms");
+			total += runtime;
+		}
+		out.println();
+		for(int j = 0; j < files.length; j++){
+			out.println(files[j].getName() + " average: " + runtimes[j]/numberOfRuns + "ms");
+		}
+		out.println("total: " + total + "ms");
+		out.println("run average: " + total/numberOfRuns + "ms");
+		out.println("----------------------------------------");
+		out.close();
+	}
 	public long runTestCases() throws Exception{
 		return runTestCases(0,L.size());
 	}
@@ -611,7 +732,12 @@ public class IntegrationTest {
 				   !actual.result.equals(expected.result)){
 					failedTestsCount++;
 					automataFailedTestsCount++;
-					System.out.println("Test " + i + " failed! Actual and expected automata do not conform.\n");
+					System.out.println("Test " + i + " failed! Actual and expected automata do not conform.");
+					if(actual.result != null && expected.result != null &&
+					   actual.result.TRUE_FALSE_AUTOMATON == expected.result.TRUE_FALSE_AUTOMATON){
+						System.out.println("They differ on the word " + actual.result.counterexample(expected.result));
+					}
+					System.out.println();
 				}
 			}
 			catch(Exception e){
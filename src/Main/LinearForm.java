@@ -0,0 +1,181 @@
+/*	 Copyright 2016 Hamoon Mousavi
+ *
+ * 	 This file is part of Walnut.
+ *
+ *   Walnut is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   Walnut is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with Walnut.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package Main;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import Automata.Automaton;
+import Automata.NumberSystem;
+
+/**
+ * A linear form c_1*x_1 + ... + c_m*x_m + k over the variables x_1,...,x_m of a number system with base != 0.
+ * Arithmetic operators fold +, - and multiplication by constants into linear forms, and the automaton of a
+ * comparison of two forms is then built at once by NumberSystem.linear, instead of one automaton per operator.<br>
+ * Arithmetic expressions evaluate to natural numbers, so a subtraction a-b requires a >= b. The form of a
+ * subtraction is marked by subtraction. Its value is constrained to be non negative by nonNegative of the form
+ * that uses it, unless this is implied, for example by c = a-b where c is a variable.
+ */
+public class LinearForm {
+	public NumberSystem base;
+	/**
+	 * The coefficients of the variables, in the order they appear. Coefficients can be negative or 0.
+	 */
+	public LinkedHashMap<String,Long> coefficients = new LinkedHashMap<String,Long>();
+	public long constant;
+	/**
+	 * True when the value of this form is not yet constrained to be non negative.
+	 */
+	public boolean subtraction;
+	/**
+	 * The forms that must be non negative.
+	 */
+	public List<LinearForm> nonNegative = new ArrayList<LinearForm>();
+
+	public LinearForm(NumberSystem base) {
+		this.base = base;
+	}
+
+	/**
+	 * @return the form of e, if e is a variable, a number literal, or an arithmetic expression that has a form.
+	 * Otherwise null.
+	 */
+	public static LinearForm of(Expression e, NumberSystem base) {
+		LinearForm form = new LinearForm(base);
+		switch(e.T){
+		case variable:
+			form.coefficients.put(e.identifier, 1L);
+			return form;
+		case numberLiteral:
+			form.constant = e.constant;
+			return form;
+		case arithmetic:
+			return e.linearForm != null && e.linearForm.base == base ? e.linearForm : null;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @return this + sign*f. The result has the constraints of both forms.
+	 * @throws ArithmeticException if a coefficient or the constant of the result does not fit in a long.
+	 */
+	public LinearForm add(LinearForm f, int sign) {
+		LinearForm result = times(1);
+		for(Map.Entry<String,Long> entry:f.coefficients.entrySet()) {
+			Long c = result.coefficients.get(entry.getKey());
+			result.coefficients.put(entry.getKey(), Math.addExact(c == null ? 0 : c, Math.multiplyExact((long)sign, entry.getValue())));
+		}
+		result.constant = Math.addExact(result.constant, Math.multiplyExact((long)sign, f.constant));
+		result.nonNegative.addAll(f.nonNegative);
+		result.subtraction = false;
+		return result;
+	}
+
+	/**
+	 * @return n*this, which is marked as a subtraction if this is.
+	 * @throws ArithmeticException if a coefficient or the constant of the result does not fit in a long.
+	 */
+	public LinearForm times(int n) {
+		LinearForm result = new LinearForm(base);
+		for(Map.Entry<String,Long> entry:coefficients.entrySet()) {
+			result.coefficients.put(entry.getKey(), Math.multiplyExact((long)n, entry.getValue()));
+		}
+		result.constant = Math.multiplyExact((long)n, constant);
+		result.nonNegative.addAll(nonNegative);
+		result.subtraction = subtraction;
+		return result;
+	}
+
+	/**
+	 * @return this form, with its value constrained to be non negative if it is a subtraction.
+	 */
+	public LinearForm constrained() {
+		if(!subtraction) return this;
+		LinearForm result = times(1);
+		result.subtraction = false;
+		LinearForm value = new LinearForm(base);
+		value.coefficients.putAll(coefficients);
+		value.constant = constant;
+		result.nonNegative.add(value);
+		return result;
+	}
+
+	/**
+	 * @return the number of inputs of the automaton of this form.
+	 */
+	public int getArity() {
+		return coefficients.size();
+	}
+
+	/**
+	 * @return an automaton that accepts iff this comparisonOperator 0 and the constraints of this form hold.
+	 * Whether the value of this form is non negative is not checked, even if it is a subtraction.
+	 * @throws Exception
+	 */
+	public Automaton compare(String comparisonOperator, boolean print, String prefix, StringBuffer log) throws Exception {
+		List<Automaton> conjuncts = new ArrayList<Automaton>();
+		conjuncts.add(automaton(comparisonOperator));
+		for(LinearForm f:nonNegative) {
+			if(f.isNonNegative()) continue;
+			if(f.getArity() == 0) return new Automaton(false);
+			conjuncts.add(f.automaton(">="));
+		}
+		if(conjuncts.size() == 1) return conjuncts.get(0);
+		return Automaton.and(conjuncts, print, prefix, log);
+	}
+
+	/**
+	 * @return true if the automaton of a comparison of this form and of its constraints can be built. The automaton of
+	 * c*x = y has about |c| states, so the coefficients must fit in an int. The constant only needs to leave room for
+	 * the carries of NumberSystem.linear.
+	 */
+	public boolean isSmall() {
+		if(Math.abs(constant) > Long.MAX_VALUE / 4) return false;
+		for(long c:coefficients.values()) {
+			if(c < Integer.MIN_VALUE || c > Integer.MAX_VALUE) return false;
+		}
+		for(LinearForm f:nonNegative) {
+			if(!f.isSmall()) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if no coefficient and not the constant is negative, so that the value is always non negative.
+	 */
+	private boolean isNonNegative() {
+		if(constant < 0) return false;
+		for(long c:coefficients.values()) {
+			if(c < 0) return false;
+		}
+		return true;
+	}
+
+	private Automaton automaton(String comparisonOperator) throws Exception {
+		return base.linear(
+			new ArrayList<String>(coefficients.keySet()),
+			coefficients.values().stream().map(Long::intValue).collect(Collectors.toList()),
+			constant,
+			comparisonOperator);
+	}
+}
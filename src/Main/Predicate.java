@@ -22,9 +22,10 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -64,11 +65,37 @@ public class Predicate {
 	Matcher MATCHER_FOR_RIGHT_PARENTHESIS;
 	Matcher MATCHER_FOR_WHITESPACE;
 
-	static HashMap<String,NumberSystem> number_system_Hash = new HashMap<String,NumberSystem>();
-	public static HashMap<String,NumberSystem> get_number_system_Hash(){
+	/**
+	 * The number systems that are in use, by name. Many threads can use it at once: get_number_system constructs
+	 * each number system exactly once, while the threads that ask for the same one meanwhile wait for it.
+	 */
+	static ConcurrentHashMap<String,NumberSystem> number_system_Hash = new ConcurrentHashMap<String,NumberSystem>();
+	/**
+	 * The locks under which number systems are constructed, one per name.
+	 */
+	static ConcurrentHashMap<String,Object> number_system_locks = new ConcurrentHashMap<String,Object>();
+	public static Map<String,NumberSystem> get_number_system_Hash(){
 		return number_system_Hash;
 	}
 
+	/**
+	 * @return the number system with the given name, which is constructed the first time it is asked for.
+	 * @throws Exception if there is no such number system. It is then constructed again the next time it is asked for.
+	 */
+	public static NumberSystem get_number_system(String name) throws Exception {
+		NumberSystem ns = number_system_Hash.get(name);
+		if(ns != null) return ns;
+		Object lock = number_system_locks.computeIfAbsent(name, key -> new Object());
+		synchronized(lock) {
+			ns = number_system_Hash.get(name);
+			if(ns == null) {
+				ns = new NumberSystem(name);
+				number_system_Hash.put(name, ns);
+			}
+			return ns;
+		}
+	}
+
 	static String REGEXP_FOR_LOGICAL_OPERATORS = "\\G\\s*(`|\\^|\\&|\\~|\\||=>|<=>|E|A)";
 	static String REGEXP_FOR_LIST_OF_QUANTIFIED_VARIABLES = "\\G\\s*((\\s*([a-zA-Z&&[^AE]]\\w*)\\s*)(\\s*,\\s*([a-zA-Z&&[^AE]]\\w*)\\s*)*)";
 	static String REGEXP_FOR_RELATIONAL_OPERATORS = "\\G\\s*(>=|<=|<|>|=|!=)";
@@ -165,18 +192,13 @@ public class Predicate {
 			} else if(MATCHER_FOR_RELATIONAL_OPERATORS.find(index)) {
 				lastTokenWasOperator = true;
 				Matcher matcher = MATCHER_FOR_RELATIONAL_OPERATORS;
-				if(!number_system_Hash.containsKey(current_number_system)) {
-					number_system_Hash.put(current_number_system, new NumberSystem(current_number_system));
-				}
-				op = new RelationalOperator(real_starting_position + matcher.start(1), matcher.group(1), number_system_Hash.get(current_number_system));
+				op = new RelationalOperator(real_starting_position + matcher.start(1), matcher.group(1), get_number_system(current_number_system));
 				op.put(postOrder, operator_Stack);
 				index = matcher.end();
 			} else if(MATCHER_FOR_ARITHMETIC_OPERATORS.find(index)) {
 				lastTokenWasOperator = true;
 				Matcher matcher = MATCHER_FOR_ARITHMETIC_OPERATORS;
-				if(!number_system_Hash.containsKey(current_number_system))
-					number_system_Hash.put(current_number_system, new NumberSystem(current_number_system));
-				op = new ArithmeticOperator(real_starting_position + matcher.start(1), matcher.group(1), number_system_Hash.get(current_number_system));
+				op = new ArithmeticOperator(real_starting_position + matcher.start(1), matcher.group(1), get_number_system(current_number_system));
 				op.put(postOrder,operator_Stack);
 				index = matcher.end();
 			} else if(MATCHER_FOR_WORD.find(index)) {
@@ -204,9 +226,7 @@ public class Predicate {
 				if(!lastTokenWasOperator)throw new Exception(
 					"An operator is missing: char at " + (real_starting_position+index));
 				lastTokenWasOperator = false;
-				if(!number_system_Hash.containsKey(current_number_system))
-					number_system_Hash.put(current_number_system, new NumberSystem(current_number_system));
-				t = new NumberLiteral(real_starting_position + MATCHER_FOR_NUMBER_LITERAL.start(1),UtilityMethods.parseInt(MATCHER_FOR_NUMBER_LITERAL.group(1)),number_system_Hash.get(current_number_system));
+				t = new NumberLiteral(real_starting_position + MATCHER_FOR_NUMBER_LITERAL.start(1),UtilityMethods.parseInt(MATCHER_FOR_NUMBER_LITERAL.group(1)),get_number_system(current_number_system));
 				t.put(postOrder);
 				index = MATCHER_FOR_NUMBER_LITERAL.end();
 			} else if(MATCHER_FOR_ALPHABET_LETTER.find(index)) {
@@ -293,6 +313,7 @@ public class Predicate {
 		Matcher m_leftBracket = p_leftBracket.matcher(predicate);
 
 		Automaton A = new Automaton(UtilityMethods.get_address_for_words_library()+matcher.group(1)+".txt");
+		A.minimizeWithOutput(false, "", null);
 
 		Stack<Character> bracket_Stack = new Stack<Character>();
 		bracket_Stack.push('[');
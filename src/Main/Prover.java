@@ -41,7 +41,7 @@ import Automata.OstrowskiNumeration;
  * @author Hamoon
  */
 public class Prover {
-	static String REGEXP_FOR_THE_LIST_OF_COMMANDS = "(eval|def|macro|reg|load|ost|exit|quit|cls|clear|combine|morphism|promote|image|inf|test)";
+	static String REGEXP_FOR_THE_LIST_OF_COMMANDS = "(eval|def|macro|reg|load|ost|exit|quit|cls|clear|combine|morphism|promote|image|inf|test|set)";
 	static String REGEXP_FOR_EMPTY_COMMAND = "^\\s*(;|::|:)\\s*$";
 	/**
 	 * the high-level scheme of a command is a name followed by some arguments and ending in either ; : or ::
@@ -122,6 +122,13 @@ public class Prover {
 	static Pattern PATTERN_FOR_test_COMMAND = Pattern.compile(REGEXP_FOR_test_COMMAND);
 	static int GROUP_TEST_NAME = 1, GROUP_TEST_NUM = 2;
 
+	/**
+	 * set changes a setting for the rest of the session, e.g., set product parallel;
+	 */
+	static String REGEXP_FOR_set_COMMAND = "^\\s*set\\s+([a-zA-Z]\\w*)\\s+([a-zA-Z]\\w*)\\s*(;|::|:)\\s*$";
+	static Pattern PATTERN_FOR_set_COMMAND = Pattern.compile(REGEXP_FOR_set_COMMAND);
+	static int GROUP_SET_OPTION = 1, GROUP_SET_VALUE = 2;
+
 	/**
 	 * if the command line argument is not empty, we treat args[0] as a filename.
 	 * if this is the case, we read from the file and load its commands before we submit control to user.
@@ -286,6 +293,8 @@ public class Prover {
 			infCommand(s);
 		} else if (commandName.equals("test")) {
 			testCommand(s);
+		} else if (commandName.equals("set")) {
+			setCommand(s);
 		} else {
 			throw new Exception("Invalid command " + commandName + ".");
 		}
@@ -322,6 +331,8 @@ public class Prover {
 			return promoteCommand(s);
 		} else if(commandName.equals("image")) {
 			return imageCommand(s);
+		} else if(commandName.equals("set")) {
+			setCommand(s);
 		} else {
 			throw new Exception("Invalid command: " + commandName);
 		}
@@ -435,10 +446,8 @@ public class Prover {
 		if(m.group(R_LIST_OF_ALPHABETS) == null) {
 			String base = "msd_2";
 			try{
-				if(!Predicate.number_system_Hash.containsKey(base))
-					Predicate.number_system_Hash.put(base, new NumberSystem(base));
-				ns = Predicate.number_system_Hash.get(base);
-				numSys.add(Predicate.number_system_Hash.get(base));
+				ns = Predicate.get_number_system(base);
+				numSys.add(ns);
 			}catch(Exception e){
 				throw new Exception("number system " + base + " does not exist: char at " + m.start(R_NUMBER_SYSTEM)+UtilityMethods.newLine()+"\t:"+e.getMessage());
 			}
@@ -453,10 +462,8 @@ public class Prover {
 				if(m1.group(9) != null)base =  m1.group(9)+"_2";
 				if(m1.group(10) != null)base = "msd_"+m1.group(10);
 				try{
-					if(!Predicate.number_system_Hash.containsKey(base))
-						Predicate.number_system_Hash.put(base, new NumberSystem(base));
-					ns = Predicate.number_system_Hash.get(base);
-					numSys.add(Predicate.number_system_Hash.get(base));
+					ns = Predicate.get_number_system(base);
+					numSys.add(ns);
 				}catch(Exception e){
 					throw new Exception("number system " + base + " does not exist: char at " + m.start(R_NUMBER_SYSTEM)+UtilityMethods.newLine()+"\t:"+e.getMessage());
 				}
@@ -654,6 +661,50 @@ public class Prover {
 		}
 	}
 
+	public static void setCommand(String s) throws Exception {
+		Matcher m = PATTERN_FOR_set_COMMAND.matcher(s);
+		if(!m.find()) {
+			throw new Exception("Invalid use of set command.");
+		}
+
+		String option = m.group(GROUP_SET_OPTION), value = m.group(GROUP_SET_VALUE);
+		if(option.equals("product")) {
+			if(value.equals("parallel")) {
+				Automaton.setParallelProduct(true);
+			} else if(value.equals("sequential")) {
+				Automaton.setParallelProduct(false);
+			} else {
+				throw new Exception("The product can be set to parallel or sequential.");
+			}
+		} else if(option.equals("determinization")) {
+			if(value.equals("parallel")) {
+				Automaton.setParallelDeterminization(true);
+			} else if(value.equals("sequential")) {
+				Automaton.setParallelDeterminization(false);
+			} else if(value.equals("lazy")) {
+				Automaton.setLazyDeterminization(true);
+			} else if(value.equals("eager")) {
+				Automaton.setLazyDeterminization(false);
+			} else {
+				throw new Exception("The determinization can be set to parallel, sequential, lazy or eager.");
+			}
+		} else if(option.equals("minimization")) {
+			Automaton.setMinimizationEngine(value);
+		} else if(option.equals("reduction")) {
+			Automaton.setReduction(value);
+		} else if(option.equals("sentences")) {
+			if(value.equals("lazy")) {
+				Computer.setLazySentences(true);
+			} else if(value.equals("eager")) {
+				Computer.setLazySentences(false);
+			} else {
+				throw new Exception("The sentences can be set to lazy or eager.");
+			}
+		} else {
+			throw new Exception("No such setting: " + option + ".");
+		}
+	}
+
 	public static void testCommand(String s) throws Exception {
 		Matcher m = PATTERN_FOR_test_COMMAND.matcher(s);
 		if(!m.find()) {
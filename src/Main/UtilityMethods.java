@@ -36,6 +36,7 @@ public class UtilityMethods {
 	static String ADDRESS_FOR_MORPHISM_LIBRARY = "Morphism Library/";
 	static String ADDRESS_FOR_RESULT = "Result/";
 	static String ADDRESS_FOR_CUSTOM_BASES = "Custom Bases/";
+	static String ADDRESS_FOR_NUMBER_SYSTEM_CACHE = "Custom Bases/Cache/";
 	static String ADDRESS_FOR_TEST_LIBRARY = "Test Library/";
 	static String ADDRESS_FOR_INTEGRATION_TEST_RESULTS = "Test Results/Integreation Tests/";
 
@@ -97,6 +98,16 @@ public class UtilityMethods {
 		return dir + ADDRESS_FOR_CUSTOM_BASES;
 	}
 
+	public static String get_address_for_number_system_cache() {
+		try {
+			Files.createDirectories(Paths.get(dir + ADDRESS_FOR_NUMBER_SYSTEM_CACHE));
+		} catch (java.io.IOException ioe) {
+			System.err.println("Permission denied, directory could not be created.");
+			ioe.printStackTrace();
+		}
+		return dir + ADDRESS_FOR_NUMBER_SYSTEM_CACHE;
+	}
+
 	public static String get_address_for_words_library() {
 		try {
 			Files.createDirectories(Paths.get(dir + ADDRESS_FOR_WORDS_LIBRARY));
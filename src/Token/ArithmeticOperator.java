@@ -20,6 +20,7 @@ package Token;
 import java.util.Stack;
 
 import Main.Expression;
+import Main.LinearForm;
 import Automata.Automaton;
 import Automata.NumberSystem;
 import Main.Type;
@@ -68,6 +69,9 @@ public class ArithmeticOperator extends Operator{
 				return;
 			}
 		}
+		if(fold(a,b,S))return;
+		materialize(a,print,prefix+" ",log);
+		materialize(b,print,prefix+" ",log);
 		String c = getUniqueString();
 		Automaton M;
 		if(a.is(Type.numberLiteral)){
@@ -108,4 +112,47 @@ public class ArithmeticOperator extends Operator{
 			System.out.println(postStep);
 		}
 	}
+
+	/**
+	 * When number_system has base != 0, op is +, - or multiplication by a constant, and a and b have linear forms,
+	 * pushes the linear form of a op b instead of computing its automaton. Subtraction is the only operator whose
+	 * result can be negative: the form of b is constrained in a-b, since a-b >= 0 and b >= 0 imply a >= 0,
+	 * and both are constrained in a+b. The form must leave room for one more input in NumberSystem.linear,
+	 * for the expression it is compared with, and its coefficients and constant must fit in a long. Otherwise a op b
+	 * is computed as before, from the automata of a and b.
+	 * @return true if a op b was folded.
+	 */
+	private boolean fold(Expression a,Expression b,Stack<Expression> S) throws Exception{
+		LinearForm A = LinearForm.of(a,number_system), B = LinearForm.of(b,number_system);
+		if(A == null || B == null)return false;
+		LinearForm result;
+		try{
+			switch(op){
+			case "+":
+				result = A.constrained().add(B.constrained(),1);
+				break;
+			case "-":
+				result = A.add(B.constrained(),-1);
+				result.subtraction = true;
+				break;
+			case "*":
+				Expression n = a.is(Type.numberLiteral) ? a : b.is(Type.numberLiteral) ? b : null;
+				if(n == null)return false;
+				if(n.constant == 0){
+					S.push(new Expression("0",0,number_system));
+					return true;
+				}
+				result = (n == a ? B : A).times(n.constant);
+				break;
+			default:
+				return false;
+			}
+		}
+		catch(ArithmeticException e){
+			return false;
+		}
+		if(result.getArity() >= number_system.getLinearInputs())return false;
+		S.push(new Expression("("+a+op+b+")",result));
+		return true;
+	}
 }
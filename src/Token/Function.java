@@ -53,7 +53,7 @@ public class Function extends Token {
 		if(print){
 			System.out.println(preStep);
 		}
-		Automaton M = new Automaton(true);
+		List<Automaton> conjuncts = new ArrayList<Automaton>();
 		List<String> identifiers = new ArrayList<String>();
 		List<String> quantify = new ArrayList<String>();
 		for(int i = 0 ; i < getArity();i++){
@@ -76,16 +76,17 @@ public class Function extends Token {
 				}
 				else{
 					String new_identifier = currentArg.identifier+getUniqueString();
-					Automaton eq = A.NS.get(i).equality.clone();
+					Automaton eq = A.NS.get(i).equality.view();
 					eq.bind(currentArg.identifier,new_identifier);
-					M = M.and(eq,print,prefix+" ",log);
+					conjuncts.add(eq);
 					quantify.add(new_identifier);
 					identifiers.add(new_identifier);
 				}
 				break;
 			case arithmetic:
+				materialize(currentArg,print,prefix+" ",log);
 				identifiers.add(currentArg.identifier);
-				M = M.and(currentArg.M,print,prefix+" ",log);
+				conjuncts.add(currentArg.M);
 				quantify.add(currentArg.identifier);
 				break;
 			case numberLiteral:
@@ -94,7 +95,7 @@ public class Function extends Token {
 				constant.bind(id);
 				identifiers.add(id);
 				quantify.add(id);
-				M = M.and(constant,print,prefix+" ",log);
+				conjuncts.add(constant);
 				break;
 			case automaton:
 				if(currentArg.M.getArity() != 1){
@@ -103,7 +104,7 @@ public class Function extends Token {
 				if(!currentArg.M.isBound()){
 					throw new Exception("argument " + (i+1) + " of function " + name + " cannot be an automaton with unlabeled input");					
 				}
-				M = M.and(currentArg.M,print,prefix+" ",log);
+				conjuncts.add(currentArg.M);
 				identifiers.add(currentArg.M.getLabel().get(0));
 				break;
 			default:
@@ -114,7 +115,8 @@ public class Function extends Token {
 		stringValue += ")";
 		
 		A.bind(identifiers);
-		A = A.and(M,print,prefix+" ",log);
+		conjuncts.add(0,A);
+		A = Automaton.and(conjuncts,print,prefix+" ",log);
 		A.quantify(new HashSet<String>(quantify),print,prefix + " ",log);
 		
 		stringValue += ")";
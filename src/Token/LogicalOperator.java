@@ -134,9 +134,7 @@ public class LogicalOperator extends Operator{
 					M.quantify(new HashSet<String>(list_of_identifiers_to_quantify),print,prefix+" ",log);
 				}
 				else{
-					M.not(print,prefix+" ",log);
-					M.quantify(new HashSet<String>(list_of_identifiers_to_quantify),print,prefix+" ",log);
-					M.not(print,prefix+" ",log);
+					M.quantifyUniversal(new HashSet<String>(list_of_identifiers_to_quantify),print,prefix+" ",log);
 				}
 			}
 		}
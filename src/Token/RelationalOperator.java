@@ -18,6 +18,7 @@
 
 package Token;
 import Main.Expression;
+import Main.LinearForm;
 import Automata.Automaton;
 import Automata.NumberSystem;
 import Main.Type;
@@ -58,7 +59,11 @@ public class RelationalOperator extends Operator{
 		if(print){
 			System.out.println(preStep);
 		}
-		if((a.is(Type.arithmetic) || a.is(Type.variable))
+		Automaton L = compareLinearForms(a,b,print,prefix+" ",log);
+		if(L != null){
+			S.push(new Expression(a+op+b,L));
+		}
+		else if((a.is(Type.arithmetic) || a.is(Type.variable))
 				&& (b.is(Type.arithmetic) || b.is(Type.variable))){
 			Automaton M = number_system.comparison(a.identifier, b.identifier, op);
 			if(a.is(Type.arithmetic)){
@@ -120,6 +125,42 @@ public class RelationalOperator extends Operator{
 			System.out.println(postStep);
 		}
 	}
+	/**
+	 * If a or b is still a linear form, and the other one has a linear form too, computes the automaton of a op b
+	 * directly from the form of a-b. The values of a and b must be non negative, which is implied for a = b when
+	 * at most one of them is a subtraction. Otherwise, or when a coefficient of a-b does not fit in a long, computes
+	 * the automata of the linear forms, if any, so that the comparison is done as usual.
+	 * @return the automaton of a op b, or null.
+	 * @throws Exception if the coefficients of a-b are too large for its automaton to be built, see LinearForm.isSmall.
+	 */
+	private Automaton compareLinearForms(Expression a,Expression b,boolean print,String prefix,StringBuffer log) throws Exception{
+		if(a.linearForm == null && b.linearForm == null)return null;
+		LinearForm A = LinearForm.of(a,number_system), B = LinearForm.of(b,number_system);
+		if(A != null && B != null){
+			if(!op.equals("=")){
+				A = A.constrained();
+				B = B.constrained();
+			}
+			else if(A.subtraction && B.subtraction){
+				A = A.constrained();
+			}
+			LinearForm difference = null;
+			try{
+				difference = A.add(B,-1);
+			}
+			catch(ArithmeticException e){
+				//a coefficient of a-b does not fit in a long: a and b are compared as usual
+			}
+			if(difference != null && difference.getArity() <= number_system.getLinearInputs()){
+				if(!difference.isSmall())
+					throw new Exception("the coefficients of a linear form are too large to compute its automaton");
+				return difference.compare(op,print,prefix,log);
+			}
+		}
+		materialize(a,print,prefix,log);
+		materialize(b,print,prefix,log);
+		return null;
+	}
 	private boolean compare(int a,int b){
 		switch(op){
 		case "=":return a == b;
@@ -20,21 +20,36 @@ package Token;
 
 import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import Main.Expression;
+import Main.LinearForm;
 
 public abstract class Token {
 	int arity;
 	int positionInPredicate;
-	static char uniqueChar = 1000;
+	static AtomicInteger uniqueChar = new AtomicInteger(1000);
 	/**
 	 * 
 	 * @return a string. It is gauranteed that the string does not have ascii characters, and that no two calls
-	 * return the same value.
+	 * return the same value, even when they are made from different threads.
 	 */
 	protected String getUniqueString(){
-		uniqueChar++;
-		return Character.toString(uniqueChar);
+		return Character.toString((char)uniqueChar.incrementAndGet());
+	}
+	/**
+	 * If e is an arithmetic expression that is still a linear form, computes its automaton, which has the inputs of the
+	 * form and a new one, the identifier of e, and accepts iff the identifier equals the form. The identifier is
+	 * non negative, so the form does not need to be constrained even if it is a subtraction.
+	 */
+	protected void materialize(Expression e,boolean print,String prefix,StringBuffer log) throws Exception{
+		if(e.linearForm == null)return;
+		String c = getUniqueString();
+		LinearForm identifier = new LinearForm(e.linearForm.base);
+		identifier.coefficients.put(c, 1L);
+		e.M = e.linearForm.add(identifier, -1).compare("=", print, prefix, log);
+		e.identifier = c;
+		e.linearForm = null;
 	}
 	public void put(List<Token> postOrder){
 		postOrder.add(this);
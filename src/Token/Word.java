@@ -53,7 +53,7 @@ public class Word extends Token{
 		}
 		List<String> identifiers = new ArrayList<String>();
 		List<String> quantify = new ArrayList<String>();
-		Automaton M = new Automaton(true);
+		List<Automaton> conjuncts = new ArrayList<Automaton>();
 		for(int i = 0 ; i < getArity();i++){
 			Expression currentIndex = temp.pop();
 			indices.add(currentIndex);
@@ -70,16 +70,17 @@ public class Word extends Token{
 				}
 				else{
 					String new_identifier = currentIndex.identifier+getUniqueString();
-					Automaton eq = W.NS.get(i).equality.clone();
+					Automaton eq = W.NS.get(i).equality.view();
 					eq.bind(currentIndex.identifier,new_identifier);
-					M = M.and(eq,print,prefix+" ",log);
+					conjuncts.add(eq);
 					quantify.add(new_identifier);
 					identifiers.add(new_identifier);
 				}
 				break;
 			case arithmetic:
+				materialize(currentIndex,print,prefix+" ",log);
 				identifiers.add(currentIndex.identifier);
-				M = M.and(currentIndex.M,print,prefix+" ",log);
+				conjuncts.add(currentIndex.M);
 				quantify.add(currentIndex.identifier);
 				break;
 			case automaton:
@@ -89,7 +90,7 @@ public class Word extends Token{
 				if(!currentIndex.M.isBound()){
 					throw new Exception("index " + (i+1) + " of word " + name + " cannot be an automaton with unlabeled input");					
 				}
-				M = M.and(currentIndex.M,print,prefix+" ",log);
+				conjuncts.add(currentIndex.M);
 				identifiers.add(currentIndex.M.getLabel().get(0));
 				break;
 			case numberLiteral:
@@ -98,13 +99,14 @@ public class Word extends Token{
 				constant.bind(id);
 				identifiers.add(id);
 				quantify.add(id);
-				M = M.and(constant,print,prefix+" ",log);
+				conjuncts.add(constant);
 				break;
 			default:
 				throw new Exception("index "+ (i+1) +" of word " + name + " cannot be of type " +currentIndex.getType());			
 			}	
 		}
 		W.bind(identifiers);
+		Automaton M = Automaton.and(conjuncts,print,prefix+" ",log);
 		S.push(new Expression(stringValue,W,M,quantify));
 		String postStep = prefix + "computed " + stringValue;  
 		log.append(postStep + UtilityMethods.newLine());